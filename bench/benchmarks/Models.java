@@ -0,0 +1,105 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * The entry points of the models, which live in the default package and so cannot be imported here.
+ * JMH refuses benchmarks in the default package, hence the detour: the handles are constants, so the JIT
+ * compiles a call through them like a direct call.
+ */
+final class Models {
+    private static final MethodHandle N_QUEENS = find("NQueens", "getNQueenSolutions", int.class, int.class);
+    private static final MethodHandle SUDOKU = find("Sudoku", "solve", int[][].class, int[][].class);
+    private static final MethodHandle BINARY_STRINGS =
+            find("StandardCombinatorics", "getBinaryStrings", List.class, int.class);
+    private static final MethodHandle COMBINATIONS_WITHOUT_REPETITION =
+            find("StandardCombinatorics", "getCombinationsWithoutRepetition", List.class, int.class, int.class);
+    private static final MethodHandle COMBINATIONS_WITH_REPETITION =
+            find("StandardCombinatorics", "getCombinationsWithRepetition", List.class, int.class, int.class);
+    private static final MethodHandle SUBSETS = find("StandardCombinatorics", "getSubsets", List.class, int.class);
+    private static final MethodHandle SET_PERMUTATIONS =
+            find("StandardCombinatorics", "getSetPermutations", List.class, int.class);
+
+    private Models() {
+    }
+
+    private static MethodHandle find(String className, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            Class<?> model = Class.forName(className);
+            return MethodHandles.publicLookup().findStatic(model, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("src/ must be on the classpath, " + className + "." + name + " is missing", e);
+        }
+    }
+
+    static int nQueens(int n) {
+        try {
+            return (int) N_QUEENS.invokeExact(n);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int[][] sudoku(int[][] grid) {
+        try {
+            return (int[][]) SUDOKU.invokeExact(grid);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> binaryStrings(int n) {
+        try {
+            return (List<String>) BINARY_STRINGS.invokeExact(n);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<int[]> combinationsWithoutRepetition(int n, int k) {
+        try {
+            return (List<int[]>) COMBINATIONS_WITHOUT_REPETITION.invokeExact(n, k);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<int[]> combinationsWithRepetition(int n, int k) {
+        try {
+            return (List<int[]>) COMBINATIONS_WITH_REPETITION.invokeExact(n, k);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<int[]> subsets(int n) {
+        try {
+            return (List<int[]>) SUBSETS.invokeExact(n);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<int[]> setPermutations(int n) {
+        try {
+            return (List<int[]>) SET_PERMUTATIONS.invokeExact(n);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    //The models throw nothing checked, so anything else came from the handle itself
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,21 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NQueensBenchmark {
+    @Param({"8", "10", "12", "14"})
+    int n;
+
+    @Benchmark
+    public int countSolutions() {
+        return Models.nQueens(n);
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One benchmark per generator, at the largest sizes the tests use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StandardCombinatoricsBenchmark {
+    @Benchmark
+    public List<String> binaryStrings() {
+        return Models.binaryStrings(20);
+    }
+
+    @Benchmark
+    public List<int[]> combinationsWithoutRepetition() {
+        return Models.combinationsWithoutRepetition(20, 8);
+    }
+
+    @Benchmark
+    public List<int[]> combinationsWithRepetition() {
+        return Models.combinationsWithRepetition(12, 8);
+    }
+
+    @Benchmark
+    public List<int[]> subsets() {
+        return Models.subsets(20);
+    }
+
+    @Benchmark
+    public List<int[]> setPermutations() {
+        return Models.setPermutations(10);
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves the bundled Sudoku instances, one bucket of sizes and levels per parameter combination.
+ * Every invocation solves the next puzzle of the bucket, so a score is an average over the whole bucket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SudokuBenchmark {
+    static final String INSTANCES = "./src/sudoku_instances/";
+
+    @Param({"3", "4", "5"})
+    int size;
+
+    // Inclusive level range, the bundled levels go up in steps of 5
+    @Param({"0-15", "20-35", "40-100"})
+    String levels;
+
+    List<int[][]> grids;
+    int next;
+
+    @Setup
+    public void load() throws FileNotFoundException {
+        String[] range = levels.split("-");
+        int minLevel = Integer.parseInt(range[0]);
+        int maxLevel = Integer.parseInt(range[1]);
+
+        grids = new ArrayList<>();
+        File[] files = new File(INSTANCES).listFiles();
+        if (files == null) throw new FileNotFoundException("Couldn't find Sudoku files in " + INSTANCES);
+        for (File file : files) {
+            // File names look like size4_level35_puzzle16.txt
+            String[] parts = file.getName().split("[_.]");
+            int fileSize = Integer.parseInt(parts[0].substring("size".length()));
+            int level = Integer.parseInt(parts[1].substring("level".length()));
+            if (fileSize == size && level >= minLevel && level <= maxLevel) {
+                grids.add(parse(file));
+            }
+        }
+        if (grids.isEmpty()) throw new IllegalStateException("No instances for size " + size + " and levels " + levels);
+    }
+
+    @Benchmark
+    public int[][] solve() {
+        int[][] grid = grids.get(next);
+        next = (next + 1) % grids.size();
+        return Models.sudoku(grid);
+    }
+
+    static int[][] parse(File file) throws FileNotFoundException {
+        try (Scanner sc = new Scanner(file)) {
+            int size = sc.nextInt();
+            int sizeSquared = size * size;
+            sc.nextInt();
+
+            int[][] grid = new int[sizeSquared][sizeSquared];
+            for (int iy = 0; iy < sizeSquared; iy++) {
+                for (int ix = 0; ix < sizeSquared; ix++) {
+                    grid[iy][ix] = sc.nextInt();
+                }
+            }
+            return grid;
+        }
+    }
+}
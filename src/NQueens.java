@@ -5,13 +5,50 @@ public class NQueens {
      * Returns the number of N-Queen solutions
      */
     public static int getNQueenSolutions(int n) {
+        Solver solver = model(n, n <= Solver.Queens.MAX_SIZE);
+        solver.setParallelism(Runtime.getRuntime().availableProcessors());
+        return (int) solver.countSolutions();
+    }
+
+    /**
+     * The model that counts every set of symmetric solutions once, weighted by its size
+     * @param bitmasks Whether to use the Queens constraint, which needs n <= Solver.Queens.MAX_SIZE, instead of
+     * a NotEqual per pair of rows and kind of attack
+     */
+    static Solver model(int n, boolean bitmasks) {
         // Initialize lists for variables and constraints
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
 
-        // TODO: add your variables
+        // One variable per row, holding the column of the queen in that row.
+        // Mirroring the board left to right maps every solution to another one, so the smallest solution of
+        // every set of symmetric ones has its first queen in the left half.
+        for (int i = 0; i < n; i++) {
+            int maxColumn = i == 0 ? (n - 1) / 2 : n - 1;
+            variables.add(new Solver.Variable(Solver.Domain.range(0, maxColumn)));
+        }
 
-        // TODO: add your constraints
+        // No two queens share a column or a diagonal. Small boards keep the attacked squares as bitmasks,
+        // larger ones fall back to one constraint per pair of rows and kind of attack.
+        if (bitmasks) {
+            constraints.add(new Solver.Queens(variables.toArray(new Solver.Variable[0])));
+        } else {
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    constraints.add(new Solver.NotEqual(variables.get(i), variables.get(j)));
+                    constraints.add(new Solver.NotEqual(variables.get(i), variables.get(j), j - i));
+                    constraints.add(new Solver.NotEqual(variables.get(i), variables.get(j), i - j));
+                }
+            }
+        }
+
+        // Flipping the board upside down only reverses the rows, so the smallest solution is at most its reverse
+        Solver.Variable[] rows = variables.toArray(new Solver.Variable[0]);
+        Solver.Variable[] reversed = new Solver.Variable[n];
+        for (int i = 0; i < n; i++) {
+            reversed[i] = rows[n - 1 - i];
+        }
+        constraints.add(new Solver.LexLessEq(rows, reversed));
 
         // Convert to arrays
         Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
@@ -19,11 +56,46 @@ public class NQueens {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
-        // Use solver
+        // Use solver, counting every smallest solution for its whole set of symmetric ones
         Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
+        solver.setSymmetries(boardSymmetries(n));
+        return solver;
+    }
 
-        // TODO: use result to construct answer
-        return -1;
+    /**
+     * The 7 rotations and reflections of the board other than the identity, on solutions that hold the column
+     * of the queen in every row. A queen at (r, c) moves to the position given in each comment.
+     */
+    static Solver.Symmetry[] boardSymmetries(int n) {
+        return new Solver.Symmetry[]{
+                // (r, n-1-c)
+                (q, image) -> {
+                    for (int r = 0; r < n; r++) image[r] = n - 1 - q[r];
+                },
+                // (n-1-r, c)
+                (q, image) -> {
+                    for (int r = 0; r < n; r++) image[n - 1 - r] = q[r];
+                },
+                // (n-1-r, n-1-c), rotation by 180 degrees
+                (q, image) -> {
+                    for (int r = 0; r < n; r++) image[n - 1 - r] = n - 1 - q[r];
+                },
+                // (c, r)
+                (q, image) -> {
+                    for (int r = 0; r < n; r++) image[q[r]] = r;
+                },
+                // (n-1-c, n-1-r)
+                (q, image) -> {
+                    for (int r = 0; r < n; r++) image[n - 1 - q[r]] = n - 1 - r;
+                },
+                // (c, n-1-r), rotation by 90 degrees
+                (q, image) -> {
+                    for (int r = 0; r < n; r++) image[q[r]] = n - 1 - r;
+                },
+                // (n-1-c, r), rotation by 270 degrees
+                (q, image) -> {
+                    for (int r = 0; r < n; r++) image[n - 1 - q[r]] = r;
+                }
+        };
     }
 }
@@ -1,151 +1,4773 @@
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 class Solver {
+    //Domain events, a change always removes values and may also move a bound or assign the variable
+    static final int EVENT_ASSIGN = 1;
+    static final int EVENT_BOUND = 2;
+    static final int EVENT_REMOVE = 4;
+    static final int EVENT_ANY = EVENT_ASSIGN | EVENT_BOUND | EVENT_REMOVE;
+
     static class Variable {
-        List<Integer> domain;
+        Domain domain;
+        int index = -1; //Position in the solver's variables
+        Solver solver; //Notified of every change, null while the variable is not part of a solver
+        Constraint[] watchers = new Constraint[0]; //Constraints with this variable in their scope
+
+        /**
+         * Constructs a new variable.
+         * @param domain The set of values that the variable can take
+         */
+        public Variable(Domain domain) {
+            this.domain = domain;
+        }
 
         /**
          * Constructs a new variable.
          * @param domain A list of values that the variable can take
          */
         public Variable(List<Integer> domain) {
-            this.domain = domain;
+            this(Domain.of(domain));
+        }
+
+        boolean isAssigned() {
+            return domain.size() == 1;
         }
-    }
 
-    static abstract class Constraint {
         /**
-         * Tries to reduce the domain of the variables associated to this constraint, using inference
+         * The value of an assigned variable
          */
-        abstract void infer(/* you can add params */);
+        int value() {
+            return domain.min();
+        }
+
+        // Constraints should change domains through the methods below, so that the solver hears about it.
+        // Each returns false if the domain became empty.
+
+        boolean remove(int value) {
+            int min = domain.min(), max = domain.max();
+            return !domain.remove(value) || changed(min, max);
+        }
+
+        boolean assign(int value) {
+            int min = domain.min(), max = domain.max();
+            return !domain.assign(value) || changed(min, max);
+        }
+
+        boolean removeBelow(int value) {
+            int min = domain.min(), max = domain.max();
+            return !domain.removeBelow(value) || changed(min, max);
+        }
+
+        boolean removeAbove(int value) {
+            int min = domain.min(), max = domain.max();
+            return !domain.removeAbove(value) || changed(min, max);
+        }
+
+        boolean removeAll(int from, long mask) {
+            int min = domain.min(), max = domain.max();
+            return !domain.removeAll(from, mask) || changed(min, max);
+        }
+
+        private boolean changed(int oldMin, int oldMax) {
+            int size = domain.size();
+            if (size == 0) return false;
+            if (solver != null) {
+                int event = EVENT_REMOVE;
+                if (domain.min() != oldMin || domain.max() != oldMax) event |= EVENT_BOUND;
+                if (size == 1) {
+                    event |= EVENT_ASSIGN;
+                    if (solver.nogoods != null) solver.nogoods.assigned(index);
+                }
+                if (solver.sizes != null) solver.sizes.update(index, size);
+                if (solver.reportReductions) solver.variableSelector.reduced(solver, this);
+                solver.schedule(this, event);
+            }
+            return true;
+        }
     }
 
-    // Example implementation of the Constraint interface.
-    static abstract class BetweenFiveAndTenConstraint {
-        Variable var;
+    /**
+     * A finite set of integers backed by a bitset, relative to the smallest value it was created with.
+     * Size, membership, removal and the bounds are all answered without walking the values.
+     */
+    static abstract class Domain implements Restorable {
+        final int base; //Value represented by bit 0
+        Trail trail; //Records changes so they can be undone, null while the domain is not part of a search
+        int owner; //Id of the domain on the trail
+        SizeIndex sizes; //Told when a restore changes the size, null unless the solver keeps a size index
+        int index; //Of the variable in the solver
 
-        public BetweenFiveAndTenConstraint(Variable var) {
-            this.var = var;
+        Domain(int base) {
+            this.base = base;
         }
 
-        void infer() {
-            List<Integer> newDomain = new LinkedList<>();
+        /**
+         * Creates the smallest domain implementation that can hold the given values.
+         * @param values The values of the domain, duplicates are ignored
+         */
+        static Domain of(List<Integer> values) {
+            if (values.isEmpty()) return new LongDomain(0, 0L);
 
-            for (Integer x : this.var.domain) {
-                if (5 < x && x < 10)
-                    newDomain.add(x);
+            int lo = Integer.MAX_VALUE;
+            int hi = Integer.MIN_VALUE;
+            for (int v : values) {
+                lo = Math.min(lo, v);
+                hi = Math.max(hi, v);
             }
 
-            this.var.domain = newDomain;
+            Domain domain = (long) hi - lo < 64 ? new LongDomain(lo, 0L) : new BitSetDomain(lo, hi - lo + 1);
+            for (int v : values) {
+                domain.add(v);
+            }
+            return domain;
         }
-    }
 
-    Variable[] variables;
-    Constraint[] constraints;
-    List<int[]> solutions;
-    // you can add more attributes
+        /**
+         * Creates a domain holding every value in [lo, hi]
+         */
+        static Domain range(int lo, int hi) {
+            if (hi < lo) return new LongDomain(lo, 0L);
+            if ((long) hi - lo < 64) return new LongDomain(lo, -1L >>> (63 - (hi - lo)));
+
+            BitSetDomain domain = new BitSetDomain(lo, hi - lo + 1);
+            for (int v = lo; v <= hi; v++) {
+                domain.add(v);
+            }
+            return domain;
+        }
+
+        abstract int size();
+
+        abstract boolean contains(int value);
+
+        /**
+         * Removes a value from the domain
+         * @return True if the domain changed
+         */
+        abstract boolean remove(int value);
+
+        /**
+         * Reduces the domain to the single given value, or to nothing if the value is not in the domain
+         * @return True if the domain changed
+         */
+        abstract boolean assign(int value);
+
+        /**
+         * Removes every value strictly smaller than the given one
+         * @return True if the domain changed
+         */
+        abstract boolean removeBelow(int value);
+
+        /**
+         * Removes every value strictly larger than the given one
+         * @return True if the domain changed
+         */
+        abstract boolean removeAbove(int value);
+
+        /**
+         * Removes the value from + i for every bit i set in the mask
+         * @return True if the domain changed
+         */
+        abstract boolean removeAll(int from, long mask);
+
+        /**
+         * The counterpart of {@link #removeAll}: bit i is set if from + i is in the domain
+         */
+        abstract long bits(int from);
+
+        /**
+         * Smallest value of the domain. Undefined for an empty domain.
+         */
+        abstract int min();
+
+        /**
+         * Largest value of the domain. Undefined for an empty domain.
+         */
+        abstract int max();
+
+        /**
+         * Returns the smallest value in the domain larger than the given one, or Integer.MAX_VALUE if there is none.
+         * Iterate with {@code for (int v = d.min(); v != Integer.MAX_VALUE; v = d.next(v))} on a non-empty domain.
+         */
+        abstract int next(int value);
+
+        abstract Domain copy();
+
+        abstract void add(int value);
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+
+        /**
+         * Boxes the values of the domain, in increasing order. Only meant for model building and debugging.
+         */
+        List<Integer> toList() {
+            List<Integer> list = new ArrayList<>(size());
+            if (isEmpty()) return list;
+            for (int v = min(); v != Integer.MAX_VALUE; v = next(v)) {
+                list.add(v);
+            }
+            return list;
+        }
+
+        @Override
+        public String toString() {
+            return toList().toString();
+        }
+    }
 
     /**
-     * Constructs a solver.
-     * @param variables The variables in the problem
-     * @param constraints The constraints applied to the variables
+     * Domain with at most 64 consecutive candidate values, stored in a single word.
      */
-    public Solver(Variable[] variables, Constraint[] constraints) {
-        this.variables = variables;
-        this.constraints = constraints;
+    static final class LongDomain extends Domain {
+        long bits;
+        private int stamp; //Trail epoch in which bits was last saved
+
+        LongDomain(int base, long bits) {
+            super(base);
+            this.bits = bits;
+        }
+
+        private void set(long bits) {
+            if (trail != null && stamp != trail.epoch) {
+                trail.save(owner, 0, this.bits);
+                stamp = trail.epoch;
+            }
+            this.bits = bits;
+        }
+
+        public void restore(int slot, long value) {
+            bits = value;
+            if (sizes != null) sizes.update(index, Long.bitCount(value));
+        }
+
+        int size() {
+            return Long.bitCount(bits);
+        }
+
+        boolean contains(int value) {
+            long i = (long) value - base;
+            return i >= 0 && i < 64 && (bits & (1L << i)) != 0;
+        }
+
+        boolean remove(int value) {
+            if (!contains(value)) return false;
+            set(bits & ~(1L << (value - base)));
+            return true;
+        }
+
+        boolean assign(int value) {
+            long kept = contains(value) ? 1L << (value - base) : 0L;
+            if (kept == bits) return false;
+            set(kept);
+            return true;
+        }
+
+        boolean removeBelow(int value) {
+            long i = (long) value - base;
+            if (i <= 0) return false;
+            long kept = i >= 64 ? 0L : bits & (-1L << i);
+            if (kept == bits) return false;
+            set(kept);
+            return true;
+        }
+
+        boolean removeAbove(int value) {
+            long i = (long) value - base;
+            if (i >= 63) return false;
+            long kept = i < 0 ? 0L : bits & (-1L >>> (63 - i));
+            if (kept == bits) return false;
+            set(kept);
+            return true;
+        }
+
+        boolean removeAll(int from, long mask) {
+            long shift = (long) from - base;
+            if (shift <= -64 || shift >= 64) return false;
+            long kept = bits & ~(shift >= 0 ? mask << shift : mask >>> -shift);
+            if (kept == bits) return false;
+            set(kept);
+            return true;
+        }
+
+        long bits(int from) {
+            long shift = (long) from - base;
+            if (shift <= -64 || shift >= 64) return 0L;
+            return shift >= 0 ? bits >>> shift : bits << -shift;
+        }
+
+        int min() {
+            return base + Long.numberOfTrailingZeros(bits);
+        }
+
+        int max() {
+            return base + 63 - Long.numberOfLeadingZeros(bits);
+        }
+
+        int next(int value) {
+            long i = (long) value - base + 1;
+            if (i >= 64) return Integer.MAX_VALUE;
+            long rest = i <= 0 ? bits : bits & (-1L << i);
+            return rest == 0 ? Integer.MAX_VALUE : base + Long.numberOfTrailingZeros(rest);
+        }
+
+        Domain copy() {
+            return new LongDomain(base, bits);
+        }
 
-        solutions = new LinkedList<>();
+        void add(int value) {
+            bits |= 1L << (value - base);
+        }
     }
 
     /**
-     * Searches for one solution that satisfies the constraints.
-     * @return The solution if it exists, else null
+     * Domain over an arbitrarily wide range of values, stored as a bitset of words.
+     * The size and both bounds are cached so they never require a scan. Subclasses decide where the words live.
      */
-    int[] findOneSolution() {
-        solve(false, variables, constraints);
+    static abstract class WordDomain extends Domain {
+        final int wordCount;
+        int size;
+        int min; //Bit index of the smallest value, only meaningful when size > 0
+        int max; //Bit index of the largest value, only meaningful when size > 0
+        private int sizeStamp, boundsStamp;
 
-        return !solutions.isEmpty() ? solutions.get(0) : null;
-    }
+        WordDomain(int base, int capacity) {
+            super(base);
+            this.wordCount = (capacity + 63) >>> 6;
+        }
 
-    List<int[]> findAllSolutions() {
-        solve(true, variables, constraints);
+        abstract long word(int w);
 
-        return solutions;
-    }
+        //Changes a word without saving it, see saveWord
+        abstract void setWord(int w, long value);
 
-    void solve(boolean findAllSolutions, Variable[] variables, Constraint[] constraints) {
-        //when collapsing a variable, restrict its domain to a specific number but keep track of the domain
-        //when backtracking, remove Var from domain somehow?
-        int curVarIndex = findNextBestUndecided(variables);
+        //Must be called before word w changes
+        abstract void saveWord(int w);
 
-        if (!findAllSolutions && !solutions.isEmpty()) return;
+        //Copies the words, size and bounds of another domain of the same width
+        void copyFrom(WordDomain other) {
+            for (int w = 0; w < wordCount; w++) {
+                setWord(w, other.word(w));
+            }
+            this.size = other.size;
+            this.min = other.min;
+            this.max = other.max;
+        }
 
-        //solution found
-        if (curVarIndex == -1) {
-            solutions.add(collapseSolution(variables));
-            return;
+        //Slots -1 and -2 hold the size and the packed bounds, every other slot is a word index
+        public void restore(int slot, long value) {
+            if (slot >= 0) {
+                setWord(slot, value);
+            } else if (slot == -1) {
+                size = (int) value;
+                if (sizes != null) sizes.update(index, size);
+            } else {
+                min = (int) (value >>> 32);
+                max = (int) value;
+            }
+        }
+
+        //Must be called before size, min or max change
+        private void saveMeta() {
+            if (trail == null) return;
+            if (sizeStamp != trail.epoch) {
+                trail.save(owner, -1, size);
+                sizeStamp = trail.epoch;
+            }
+            if (boundsStamp != trail.epoch) {
+                trail.save(owner, -2, (long) min << 32 | (max & 0xFFFFFFFFL));
+                boundsStamp = trail.epoch;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(int value) {
+            long i = (long) value - base;
+            return i >= 0 && i < ((long) wordCount << 6) && (word((int) (i >>> 6)) & (1L << i)) != 0;
+        }
+
+        boolean remove(int value) {
+            if (!contains(value)) return false;
+            int i = value - base;
+            saveMeta();
+            saveWord(i >>> 6);
+            setWord(i >>> 6, word(i >>> 6) & ~(1L << i));
+            size--;
+            if (size > 0) {
+                if (i == min) min = nextIndex(i + 1);
+                if (i == max) max = prevIndex(i - 1);
+            }
+            return true;
+        }
+
+        boolean assign(int value) {
+            if (!contains(value)) return clear();
+            if (size == 1) return false;
+            int i = value - base;
+            saveMeta();
+            clearRange(min, max);
+            setWord(i >>> 6, word(i >>> 6) | 1L << i);
+            size = 1;
+            min = max = i;
+            return true;
+        }
+
+        boolean removeBelow(int value) {
+            if (size == 0 || value <= base + min) return false;
+            if (value > base + max) return clear();
+            int i = value - base;
+            saveMeta();
+            size -= countRange(min, i - 1);
+            clearRange(min, i - 1);
+            min = nextIndex(i);
+            return true;
+        }
+
+        boolean removeAbove(int value) {
+            if (size == 0 || value >= base + max) return false;
+            if (value < base + min) return clear();
+            int i = value - base;
+            saveMeta();
+            size -= countRange(i + 1, max);
+            clearRange(i + 1, max);
+            max = prevIndex(i);
+            return true;
+        }
+
+        boolean removeAll(int from, long mask) {
+            boolean changed = false;
+            for (; mask != 0; mask &= mask - 1) {
+                changed |= remove(from + Long.numberOfTrailingZeros(mask));
+            }
+            return changed;
+        }
+
+        long bits(int from) {
+            long result = 0L;
+            for (int i = 0; i < 64 && (long) from + i <= Integer.MAX_VALUE; i++) {
+                if (contains(from + i)) result |= 1L << i;
+            }
+            return result;
         }
 
-        Variable cur = variables[curVarIndex];
-        for (Integer choice : cur.domain) {
-            Variable[] nextVariables = copy(variables);
+        int min() {
+            return base + min;
+        }
+
+        int max() {
+            return base + max;
+        }
+
+        int next(int value) {
+            long i = (long) value - base + 1;
+            if (size == 0 || i > max) return Integer.MAX_VALUE;
+            return base + nextIndex((int) Math.max(i, min));
+        }
+
+        void add(int value) {
+            if (contains(value)) return;
+            int i = value - base;
+            setWord(i >>> 6, word(i >>> 6) | 1L << i);
+            if (size == 0 || i < min) min = i;
+            if (size == 0 || i > max) max = i;
+            size++;
+        }
+
+        private boolean clear() {
+            if (size == 0) return false;
+            saveMeta();
+            clearRange(min, max);
+            size = 0;
+            return true;
+        }
+
+        //Index of the first set bit at or after from, assumes one exists
+        private int nextIndex(int from) {
+            int w = from >>> 6;
+            long word = word(w) & (-1L << from);
+            while (word == 0) {
+                word = word(++w);
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
 
-            //Collapse the domain of the variable to choice and infer from there
-            nextVariables[curVarIndex].domain = List.of(choice);
-            for (Constraint constraint : constraints) {
-                constraint.infer();
+        //Index of the last set bit at or before from, assumes one exists
+        private int prevIndex(int from) {
+            int w = from >>> 6;
+            long word = word(w) & (-1L >>> (63 - (from & 63)));
+            while (word == 0) {
+                word = word(--w);
             }
+            return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+        }
+
+        private int countRange(int from, int to) {
+            int count = 0;
+            for (int w = from >>> 6; w <= to >>> 6; w++) {
+                count += Long.bitCount(word(w) & rangeMask(w, from, to));
+            }
+            return count;
+        }
 
-            //If conflict -> a variable has empty domain -> return
-            for (Variable v : nextVariables) {
-                if (v.domain.isEmpty()) return;
+        private void clearRange(int from, int to) {
+            for (int w = from >>> 6; w <= to >>> 6; w++) {
+                long word = word(w);
+                long cleared = word & ~rangeMask(w, from, to);
+                if (cleared != word) {
+                    saveWord(w);
+                    setWord(w, cleared);
+                }
             }
+        }
 
-            solve(findAllSolutions, nextVariables, constraints);
+        //Bits of word w that fall within [from, to]
+        private static long rangeMask(int w, int from, int to) {
+            long mask = -1L;
+            if (w == from >>> 6) mask &= -1L << from;
+            if (w == to >>> 6) mask &= -1L >>> (63 - (to & 63));
+            return mask;
         }
     }
 
+    /**
+     * Word domain stored as a long[] on the heap.
+     */
+    static final class BitSetDomain extends WordDomain {
+        final long[] words;
+        private final int[] wordStamps; //Trail epoch in which each word was last saved
+
+        BitSetDomain(int base, int capacity) {
+            super(base, capacity);
+            this.words = new long[wordCount];
+            this.wordStamps = new int[wordCount];
+        }
+
+        long word(int w) {
+            return words[w];
+        }
+
+        void setWord(int w, long value) {
+            words[w] = value;
+        }
+
+        void saveWord(int w) {
+            if (trail != null && wordStamps[w] != trail.epoch) {
+                trail.save(owner, w, words[w]);
+                wordStamps[w] = trail.epoch;
+            }
+        }
 
-    //Assuming all variables are of length 1, return an array of solutions
-    int[] collapseSolution(Variable[] variables) {
-        return Arrays.stream(variables).mapToInt(x -> x.domain.get(0)).toArray();
+        Domain copy() {
+            BitSetDomain copy = new BitSetDomain(base, wordCount << 6);
+            copy.copyFrom(this);
+            return copy;
+        }
     }
 
     /**
-     * Returns index of the variable with the smallest domain, but the domain has length >= 2
-     * If a solution is already defined (i.e. all variables have a domain of 1) returns null
-     * @return Best variable to compute with or null if all variables chosen
+     * Word domain whose words and their trail stamps live in an {@link OffHeap} arena, so that a wide domain only
+     * keeps a fixed handful of fields on the heap. Copies are made on the heap, the solver they are given to moves
+     * them into its own arena.
      */
-    int findNextBestUndecided(Variable[] variables) {
-        int best = -1;
-        int bestNumber = Integer.MAX_VALUE;
-        for (int i = 0; i < variables.length; i++) {
-            Variable v = variables[i];
-            if (v.domain.size() < bestNumber && v.domain.size() > 1) {
-                best = i;
-                bestNumber = v.domain.size();
+    static final class DirectDomain extends WordDomain {
+        private final OffHeap.Region region; //Words first, then the stamp of every word
+
+        DirectDomain(int base, int capacity, OffHeap memory) {
+            super(base, capacity);
+            this.region = memory.allocate(2 * wordCount);
+        }
+
+        long word(int w) {
+            return region.longs().get(w);
+        }
+
+        void setWord(int w, long value) {
+            region.longs().put(w, value);
+        }
+
+        void saveWord(int w) {
+            if (trail == null) return;
+            LongBuffer longs = region.longs();
+            if (longs.get(wordCount + w) != trail.epoch) {
+                trail.save(owner, w, longs.get(w));
+                longs.put(wordCount + w, trail.epoch);
             }
         }
-        return best;
+
+        Domain copy() {
+            BitSetDomain copy = new BitSetDomain(base, wordCount << 6);
+            copy.copyFrom(this);
+            return copy;
+        }
+    }
+
+    /**
+     * State that can be rolled back by the trail.
+     */
+    interface Restorable {
+        /**
+         * Puts back a value previously passed to {@link Trail#save}
+         * @param slot Which part of the state the value belongs to, as chosen by the owner
+         * @param value The value the slot had when it was saved
+         */
+        void restore(int slot, long value);
     }
 
-    Variable[] copy(Variable[] variables) {
-        Variable[] ret = new Variable[variables.length];
-        for (int i = 0; i < ret.length; i++) {
-            ret[i] = new Variable(new ArrayList<>(variables[i].domain));
+    /**
+     * Undo log of every change made to the search state since a checkpoint.
+     * Owners save a slot at most once per epoch, so a node only costs as much as what it changed.
+     * Owners are known by the id they registered with, which keeps the entries plain numbers that can live off the
+     * heap, see {@link OffHeap}.
+     */
+    static final class Trail {
+        private final OffHeap memory; //Holds the entries, null to keep them on the heap
+        private Restorable[] owners = new Restorable[64]; //By id
+        private int ownerCount;
+        //Two longs per entry, the owner id and the slot packed together and then the value, in one of these two
+        private long[] entries;
+        private OffHeap.Region region;
+        private int capacity; //In entries
+        private int size;
+        int epoch = 1; //Changes whenever a checkpoint is taken or restored, owners compare it to their own stamps
+
+        Trail() {
+            this(null);
+        }
+
+        /**
+         * @param memory The arena to keep the entries in, or null to keep them on the heap
+         */
+        Trail(OffHeap memory) {
+            this.memory = memory;
+            this.capacity = 256;
+            if (memory == null) entries = new long[2 * capacity];
+            else region = memory.allocate(2 * capacity);
+        }
+
+        /**
+         * @return The id the owner saves its slots under
+         */
+        int register(Restorable owner) {
+            if (ownerCount == owners.length) owners = Arrays.copyOf(owners, ownerCount * 2);
+            owners[ownerCount] = owner;
+            return ownerCount++;
+        }
+
+        /**
+         * Marks the current state so it can be returned to with {@link #restore}
+         * @return The checkpoint
+         */
+        int checkpoint() {
+            epoch++;
+            return size;
+        }
+
+        /**
+         * Undoes every change saved after the given checkpoint, newest first
+         */
+        void restore(int checkpoint) {
+            while (size > checkpoint) {
+                size--;
+                long key, value;
+                if (entries != null) {
+                    key = entries[2 * size];
+                    value = entries[2 * size + 1];
+                } else {
+                    LongBuffer longs = region.longs();
+                    key = longs.get(2 * size);
+                    value = longs.get(2 * size + 1);
+                }
+                owners[(int) (key >>> 32)].restore((int) key, value);
+            }
+            epoch++;
+        }
+
+        void save(int owner, int slot, long value) {
+            if (size == capacity) grow();
+            long key = (long) owner << 32 | (slot & 0xFFFFFFFFL);
+            if (entries != null) {
+                entries[2 * size] = key;
+                entries[2 * size + 1] = value;
+            } else {
+                LongBuffer longs = region.longs();
+                longs.put(2 * size, key);
+                longs.put(2 * size + 1, value);
+            }
+            size++;
+        }
+
+        private void grow() {
+            capacity *= 2;
+            if (entries != null) {
+                entries = Arrays.copyOf(entries, 2 * capacity);
+                return;
+            }
+            OffHeap.Region grown = memory.allocate(2 * capacity);
+            grown.longs().put(0, region.longs(), 0, 2 * size);
+            memory.free(region);
+            region = grown;
         }
-        return ret;
     }
 
+    /**
+     * A long that is rolled back by the trail, for constraints that keep state of their own during the search.
+     */
+    static final class ReversibleLong implements Restorable {
+        private final Trail trail;
+        private final int owner; //Id on the trail
+        private long value;
+        private int stamp; //Trail epoch in which value was last saved
+
+        ReversibleLong(Trail trail, long value) {
+            this.trail = trail;
+            this.owner = trail.register(this);
+            this.value = value;
+        }
 
-    static class Node {
-        Variable[] variables;
-        int depth; //Represents which variable index should be considered now
+        long get() {
+            return value;
+        }
 
-        public Node(Variable[] variables, int depth) {
-            this.variables = variables;
-            this.depth = depth;
+        void set(long value) {
+            if (value == this.value) return;
+            if (stamp != trail.epoch) {
+                trail.save(owner, 0, this.value);
+                stamp = trail.epoch;
+            }
+            this.value = value;
+        }
+
+        public void restore(int slot, long value) {
+            this.value = value;
         }
     }
-}
 
+    /**
+     * Memory outside the Java heap for the search state of very large models, see
+     * {@link Solver#Solver(Variable[], Constraint[], OffHeap)}. The garbage collector neither scans nor moves it,
+     * and it is given back when the arena is closed instead of when the collector gets to it, as far as the runtime
+     * allows. A solver that is used after its arena was closed throws an IllegalStateException rather than reading
+     * freed memory. Thread safe.
+     */
+    static final class OffHeap implements AutoCloseable {
+        //Small regions are carved out of shared chunks, the first of this many longs and every next one twice as large
+        static final int MIN_CHUNK_LONGS = 1 << 12;
+        static final int CHUNK_LONGS = 1 << 17; //Largest shared chunk, a region over a quarter of it gets its own
+        static final int MAX_REGION_LONGS = 1 << 28; //The most a single direct buffer can hold
+
+        //Frees a direct buffer right away. Java 17 has no public way to do that, MemorySegment is still incubating,
+        //but sun.misc.Unsafe of the jdk.unsupported module can. Both are null if it is not there or not accessible,
+        //in which case a released buffer is freed by the collector once it is unreachable, see release
+        private static final Object UNSAFE;
+        private static final Method INVOKE_CLEANER;
+        //Counts a buffer the collector frees as freed, only used without INVOKE_CLEANER
+        private static final Cleaner COLLECTED = Cleaner.create();
+
+        static {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try {
+                Class<?> type = Class.forName("sun.misc.Unsafe");
+                Field field = type.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+                invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                unsafe = null;
+                invokeCleaner = null;
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        /**
+         * Longs handed out by an arena, zeroed when allocated
+         */
+        static final class Region {
+            private LongBuffer longs; //Null once the region is freed
+            private final ByteBuffer chunk; //Freed together with the region, null if the region shares a chunk
+
+            private Region(LongBuffer longs, ByteBuffer chunk) {
+                this.longs = longs;
+                this.chunk = chunk;
+            }
+
+            /**
+             * @throws IllegalStateException If the region was freed, e.g. because its arena was closed
+             */
+            LongBuffer longs() {
+                LongBuffer longs = this.longs;
+                if (longs == null) throw new IllegalStateException("The memory was freed, its arena is closed");
+                return longs;
+            }
+        }
+
+        private final Set<Region> regions = new HashSet<>(); //Not freed yet
+        private final List<ByteBuffer> sharedChunks = new ArrayList<>();
+        private LongBuffer shared; //The chunk small regions are currently carved out of
+        private int sharedUsed;
+        private final AtomicLong allocated = new AtomicLong(); //Bytes, until they are actually freed
+        private boolean closed;
+
+        /**
+         * @param longs At most {@link #MAX_REGION_LONGS}
+         */
+        synchronized Region allocate(int longs) {
+            if (closed) throw new IllegalStateException("The arena is closed");
+            if (longs > MAX_REGION_LONGS) throw new IllegalArgumentException(longs + " longs do not fit in a region");
+
+            Region region;
+            if (longs > CHUNK_LONGS / 4) {
+                ByteBuffer chunk = allocateDirect(longs);
+                region = new Region(chunk.asLongBuffer(), chunk);
+            } else {
+                if (shared == null || sharedUsed + longs > shared.capacity()) {
+                    int size = MIN_CHUNK_LONGS << Math.min(sharedChunks.size(), 5); //At most CHUNK_LONGS
+                    ByteBuffer chunk = allocateDirect(Math.max(longs, size));
+                    sharedChunks.add(chunk);
+                    shared = chunk.asLongBuffer();
+                    sharedUsed = 0;
+                }
+                region = new Region(shared.slice(sharedUsed, longs), null);
+                sharedUsed += longs;
+            }
+            regions.add(region);
+            return region;
+        }
+
+        /**
+         * Gives a region back. Regions carved out of a shared chunk are only given back when the arena is closed.
+         */
+        synchronized void free(Region region) {
+            if (!regions.remove(region)) return;
+            region.longs = null;
+            if (region.chunk != null) release(region.chunk);
+        }
+
+        /**
+         * Bytes of off-heap memory the arena holds, including released buffers the collector has not freed yet
+         */
+        long allocated() {
+            return allocated.get();
+        }
+
+        /**
+         * Frees all memory of the arena, after which nothing can be allocated in it anymore
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) return;
+            closed = true;
+            for (Region region : regions) {
+                region.longs = null;
+                if (region.chunk != null) release(region.chunk);
+            }
+            for (ByteBuffer chunk : sharedChunks) {
+                release(chunk);
+            }
+            regions.clear();
+            sharedChunks.clear();
+            shared = null;
+        }
+
+        private ByteBuffer allocateDirect(int longs) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(longs * 8).order(ByteOrder.nativeOrder());
+            allocated.addAndGet(buffer.capacity());
+            return buffer;
+        }
+
+        //Frees a buffer no region uses anymore, or leaves it to the collector if it cannot be freed right away
+        private void release(ByteBuffer buffer) {
+            long bytes = buffer.capacity();
+            if (INVOKE_CLEANER != null) {
+                try {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                    allocated.addAndGet(-bytes);
+                    return;
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    //Not freed, e.g. a runtime that refuses the buffer, so the collector has to
+                }
+            }
+            AtomicLong allocated = this.allocated; //The action must not hold on to the buffer, nor to the arena
+            COLLECTED.register(buffer, () -> allocated.addAndGet(-bytes));
+        }
+    }
+
+    static abstract class Constraint {
+        final Variable[] scope;
+        int id = -1; //Position in the solver's constraints
+        boolean queued; //Whether the constraint is waiting in the propagation queue
+
+        /**
+         * @param scope The variables whose changes can make this constraint infer something new
+         */
+        Constraint(Variable... scope) {
+            this.scope = scope;
+        }
+
+        /**
+         * Which domain events on the scope wake this constraint up. It always runs once at the root.
+         */
+        int events() {
+            return EVENT_ANY;
+        }
+
+        /**
+         * Whether one call to infer always reaches a fixpoint on its own, so that the changes it makes
+         * do not have to wake it up again.
+         */
+        boolean idempotent() {
+            return false;
+        }
+
+        /**
+         * Tries to reduce the domain of the variables associated to this constraint, using inference
+         * @return False if the constraint can no longer be satisfied
+         */
+        abstract boolean infer();
+
+        /**
+         * Called once by the solver the constraint is given to, before any inference.
+         * Constraints that keep state during the search create it here, on the trail of that solver.
+         */
+        void attach(Solver solver) {
+        }
+
+        //Narrows a bound computed in longs to the ints of the domains
+        static int clamp(long value) {
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+        }
+
+        /**
+         * Creates the same constraint over other variables, which is needed to search in parallel and to race.
+         * @param variables The new variables, indexed like the variables of the solver this constraint belongs to
+         */
+        abstract Constraint copy(Variable[] variables);
+    }
+
+    // Example implementation of the Constraint interface.
+    static class BetweenFiveAndTenConstraint extends Constraint {
+        Variable var;
+
+        public BetweenFiveAndTenConstraint(Variable var) {
+            super(var);
+            this.var = var;
+        }
+
+        //Nothing changes after the root, so it never needs to wake up again
+        int events() {
+            return 0;
+        }
+
+        boolean infer() {
+            return var.removeBelow(6) && var.removeAbove(9);
+        }
+
+        Constraint copy(Variable[] variables) {
+            return new BetweenFiveAndTenConstraint(variables[var.index]);
+        }
+    }
+
+    /**
+     * x != y + offset
+     */
+    static class NotEqual extends Constraint {
+        final Variable x, y;
+        final int offset;
+
+        public NotEqual(Variable x, Variable y, int offset) {
+            super(x, y);
+            this.x = x;
+            this.y = y;
+            this.offset = offset;
+        }
+
+        public NotEqual(Variable x, Variable y) {
+            this(x, y, 0);
+        }
+
+        int events() {
+            return EVENT_ASSIGN;
+        }
+
+        boolean infer() {
+            if (x.isAssigned() && !y.remove(x.value() - offset)) return false;
+            return !y.isAssigned() || x.remove(y.value() + offset);
+        }
+
+        Constraint copy(Variable[] variables) {
+            return new NotEqual(variables[x.index], variables[y.index], offset);
+        }
+    }
+
+    /**
+     * The values x[i] + offsets[i] are all different, enforced with generalized arc consistency:
+     * every value left in a domain belongs to some assignment of the whole scope that satisfies the constraint.
+     * Uses a maximum matching between variables and values, kept between calls, and the strongly connected
+     * components of its residual graph (Regin, 1994).
+     */
+    static class AllDifferent extends Constraint {
+        final Variable[] vars;
+        final int[] offsets;
+        final int valueBase; //Smallest shifted value any variable could take
+        final int valueCount;
+
+        //Matching between variables and shifted values, not trailed since any matching stays valid after a backtrack
+        private final int[] match; //Value index matched to each variable, or -1
+        private final int[] matchedBy; //Variable matched to each value index, or -1
+        private final int[] visited; //Stamp of the last augmenting path search that visited a value
+        private int stamp;
+
+        //Scratch space for the residual graph, nodes are the variables followed by the value indices
+        private final int[] edgeStart, edges, index, low, nodeStack, callStack, edgePos, component;
+        private final boolean[] onStack, reachable;
+        private final boolean[] assignedSeen;
+
+        public AllDifferent(Variable[] vars) {
+            this(vars, new int[vars.length]);
+        }
+
+        public AllDifferent(Variable[] vars, int[] offsets) {
+            super(vars);
+            this.vars = vars;
+            this.offsets = offsets;
+
+            int lo = Integer.MAX_VALUE, hi = Integer.MIN_VALUE, edgeCount = 0;
+            for (int i = 0; i < vars.length; i++) {
+                lo = Math.min(lo, vars[i].domain.min() + offsets[i]);
+                hi = Math.max(hi, vars[i].domain.max() + offsets[i]);
+                edgeCount += vars[i].domain.size();
+            }
+            this.valueBase = vars.length == 0 ? 0 : lo;
+            this.valueCount = vars.length == 0 ? 0 : hi - lo + 1;
+
+            int nodes = vars.length + valueCount;
+            match = new int[vars.length];
+            matchedBy = new int[valueCount];
+            visited = new int[valueCount];
+            Arrays.fill(match, -1);
+            Arrays.fill(matchedBy, -1);
+            edgeStart = new int[valueCount + 1];
+            edges = new int[edgeCount];
+            index = new int[nodes];
+            low = new int[nodes];
+            nodeStack = new int[nodes];
+            callStack = new int[nodes];
+            edgePos = new int[nodes];
+            component = new int[nodes];
+            onStack = new boolean[nodes];
+            reachable = new boolean[valueCount];
+            assignedSeen = new boolean[vars.length];
+        }
+
+        boolean idempotent() {
+            return true;
+        }
+
+        boolean infer() {
+            int n = vars.length;
+            if (!removeAssignedValues()) return false;
+
+            //Pigeonhole shortcut: when every open domain has at least as many values as there are open variables,
+            //any value can be completed to a matching, so there is nothing left to prune
+            int open = 0, smallest = Integer.MAX_VALUE;
+            for (Variable v : vars) {
+                if (v.isAssigned()) continue;
+                open++;
+                smallest = Math.min(smallest, v.domain.size());
+            }
+            if (smallest >= open) return true;
+
+            //Drop matches to values that were removed since the last call, then complete the matching
+            for (int i = 0; i < n; i++) {
+                if (match[i] != -1 && !vars[i].domain.contains(match[i] + valueBase - offsets[i])) {
+                    matchedBy[match[i]] = -1;
+                    match[i] = -1;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (match[i] == -1) {
+                    stamp++;
+                    if (!augment(i)) return false;
+                }
+            }
+
+            buildResidualGraph();
+            markReachableFromFreeValues();
+            findComponents();
+
+            //An edge outside the matching can only be used if it lies on an alternating cycle or path
+            for (int i = 0; i < n; i++) {
+                Domain d = vars[i].domain;
+                if (d.size() == 1) continue;
+                for (int v = d.min(); v != Integer.MAX_VALUE; v = d.next(v)) {
+                    int a = v + offsets[i] - valueBase;
+                    if (a == match[i] || reachable[a] || component[n + a] == component[i]) continue;
+                    if (!vars[i].remove(v)) return false;
+                }
+            }
+            return true;
+        }
+
+        //Forward checking, until no removal assigns another variable
+        private boolean removeAssignedValues() {
+            int n = vars.length;
+            Arrays.fill(assignedSeen, false);
+            boolean progress = true;
+            while (progress) {
+                progress = false;
+                for (int i = 0; i < n; i++) {
+                    if (assignedSeen[i] || !vars[i].isAssigned()) continue;
+                    assignedSeen[i] = true;
+                    progress = true;
+                    int a = vars[i].value() + offsets[i];
+                    for (int j = 0; j < n; j++) {
+                        if (j != i && !vars[j].remove(a - offsets[j])) return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        //Finds an augmenting path from variable i, Kuhn's algorithm
+        private boolean augment(int i) {
+            Domain d = vars[i].domain;
+            if (d.isEmpty()) return false;
+            for (int v = d.min(); v != Integer.MAX_VALUE; v = d.next(v)) {
+                int a = v + offsets[i] - valueBase;
+                if (visited[a] == stamp) continue;
+                visited[a] = stamp;
+                if (matchedBy[a] == -1 || augment(matchedBy[a])) {
+                    match[i] = a;
+                    matchedBy[a] = i;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        //Value a points to every variable that has a in its domain without being matched to it
+        private void buildResidualGraph() {
+            Arrays.fill(edgeStart, 0);
+            for (int i = 0; i < vars.length; i++) {
+                Domain d = vars[i].domain;
+                for (int v = d.min(); v != Integer.MAX_VALUE; v = d.next(v)) {
+                    int a = v + offsets[i] - valueBase;
+                    if (a != match[i]) edgeStart[a + 1]++;
+                }
+            }
+            for (int a = 0; a < valueCount; a++) {
+                edgeStart[a + 1] += edgeStart[a];
+            }
+            for (int i = 0; i < vars.length; i++) {
+                Domain d = vars[i].domain;
+                for (int v = d.min(); v != Integer.MAX_VALUE; v = d.next(v)) {
+                    int a = v + offsets[i] - valueBase;
+                    if (a != match[i]) edges[edgeStart[a]++] = i;
+                }
+            }
+            //Filling shifted every start to the next one's position, shift them back
+            for (int a = valueCount; a > 0; a--) {
+                edgeStart[a] = edgeStart[a - 1];
+            }
+            edgeStart[0] = 0;
+        }
+
+        private void markReachableFromFreeValues() {
+            int head = 0, tail = 0;
+            for (int a = 0; a < valueCount; a++) {
+                reachable[a] = matchedBy[a] == -1;
+                if (reachable[a]) nodeStack[tail++] = a;
+            }
+            while (head < tail) {
+                int a = nodeStack[head++];
+                for (int e = edgeStart[a]; e < edgeStart[a + 1]; e++) {
+                    int b = match[edges[e]];
+                    if (!reachable[b]) {
+                        reachable[b] = true;
+                        nodeStack[tail++] = b;
+                    }
+                }
+            }
+        }
+
+        //Tarjan's algorithm without recursion, variables have one edge to their matched value
+        private void findComponents() {
+            int n = vars.length;
+            int nodes = n + valueCount;
+            Arrays.fill(index, -1);
+            int counter = 0, stackSize = 0, components = 0;
+
+            for (int root = 0; root < n; root++) {
+                if (index[root] != -1) continue;
+                int depth = 0;
+                callStack[depth++] = root;
+                index[root] = low[root] = counter++;
+                edgePos[root] = 0;
+                nodeStack[stackSize++] = root;
+                onStack[root] = true;
+
+                while (depth > 0) {
+                    int v = callStack[depth - 1];
+                    int w = nextSuccessor(v);
+                    if (w != -1) {
+                        if (index[w] == -1) {
+                            index[w] = low[w] = counter++;
+                            edgePos[w] = 0;
+                            nodeStack[stackSize++] = w;
+                            onStack[w] = true;
+                            callStack[depth++] = w;
+                        } else if (onStack[w]) {
+                            low[v] = Math.min(low[v], index[w]);
+                        }
+                        continue;
+                    }
+
+                    depth--;
+                    if (low[v] == index[v]) {
+                        int w2;
+                        do {
+                            w2 = nodeStack[--stackSize];
+                            onStack[w2] = false;
+                            component[w2] = components;
+                        } while (w2 != v);
+                        components++;
+                    }
+                    if (depth > 0) {
+                        int parent = callStack[depth - 1];
+                        low[parent] = Math.min(low[parent], low[v]);
+                    }
+                }
+            }
+            //Values never reached from a variable get their own component
+            for (int v = n; v < nodes; v++) {
+                if (index[v] == -1) component[v] = components++;
+            }
+        }
+
+        //Next unexplored successor of node v in the residual graph, or -1
+        private int nextSuccessor(int v) {
+            int n = vars.length;
+            if (v < n) {
+                return edgePos[v]++ == 0 ? n + match[v] : -1;
+            }
+            int a = v - n;
+            int e = edgeStart[a] + edgePos[v];
+            if (e >= edgeStart[a + 1]) return -1;
+            edgePos[v]++;
+            return edges[e];
+        }
+
+        Constraint copy(Variable[] variables) {
+            Variable[] copies = new Variable[vars.length];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = variables[vars[i].index];
+            }
+            return new AllDifferent(copies, offsets);
+        }
+    }
+
+    /**
+     * The values x[i] + offsets[i] are all different, enforced with bounds consistency only: the bounds of every
+     * domain belong to a solution of the constraint when domains are relaxed to intervals. Cheaper than
+     * {@link AllDifferent}, and only woken up when a bound moves.
+     */
+    static class BoundsAllDifferent extends Constraint {
+        final Variable[] vars;
+        final int[] offsets;
+        //The algorithm of Lopez-Ortiz, Quimper, Tromp and van Beek: the shifted bounds of the domains as half open
+        //intervals [min, max + 1), and the distinct ends of those intervals in increasing order
+        private final int[] mins, maxs, minRanks, maxRanks;
+        private final int[] byMin, byMax; //Variable indices, sorted by shifted lower and upper bound on every call
+        private final long[] keys; //Bound in the high half and index in the low half, to sort without boxing
+        private final int[] bounds;
+        private int boundCount;
+        //Union-find like forests over the bounds, with path compression: t links critical capacities, h Hall
+        //intervals, d is the capacity left between a bound and the one before it
+        private final int[] t, h, d;
+
+        public BoundsAllDifferent(Variable[] vars) {
+            this(vars, new int[vars.length]);
+        }
+
+        public BoundsAllDifferent(Variable[] vars, int[] offsets) {
+            super(vars);
+            int n = vars.length;
+            this.vars = vars;
+            this.offsets = offsets;
+            this.mins = new int[n];
+            this.maxs = new int[n];
+            this.minRanks = new int[n];
+            this.maxRanks = new int[n];
+            this.byMin = new int[n];
+            this.byMax = new int[n];
+            this.keys = new long[n];
+            this.bounds = new int[2 * n + 2];
+            this.t = new int[2 * n + 2];
+            this.h = new int[2 * n + 2];
+            this.d = new int[2 * n + 2];
+        }
+
+        int events() {
+            return EVENT_BOUND;
+        }
+
+        //Moves every lower bound above the Hall intervals below it, then every upper bound below those above it,
+        //in O(n log n) for the sorts. Moving a bound wakes this constraint up again, which sorts the new bounds
+        boolean infer() {
+            if (vars.length == 0) return true;
+            for (int i = 0; i < vars.length; i++) {
+                mins[i] = vars[i].domain.min() + offsets[i];
+                maxs[i] = vars[i].domain.max() + offsets[i] + 1;
+            }
+            sort(mins, byMin);
+            sort(maxs, byMax);
+            rank();
+            return filterLower() && filterUpper();
+        }
+
+        //Fills order with the variable indices by increasing value
+        private void sort(int[] values, int[] order) {
+            for (int i = 0; i < values.length; i++) {
+                keys[i] = (long) values[i] << 32 | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < values.length; i++) {
+                order[i] = (int) keys[i];
+            }
+        }
+
+        //Merges the sorted ends into bounds, and gives every variable the rank of its ends among them
+        private void rank() {
+            int n = vars.length;
+            int min = mins[byMin[0]], max = maxs[byMax[0]];
+            int last = min - 2;
+            int count = 0;
+            bounds[0] = last;
+            for (int i = 0, j = 0; ; ) {
+                if (i < n && min <= max) {
+                    if (min != last) bounds[++count] = last = min;
+                    minRanks[byMin[i]] = count;
+                    if (++i < n) min = mins[byMin[i]];
+                } else {
+                    if (max != last) bounds[++count] = last = max;
+                    maxRanks[byMax[j]] = count;
+                    if (++j == n) break;
+                    max = maxs[byMax[j]];
+                }
+            }
+            boundCount = count;
+            bounds[count + 1] = bounds[count] + 2;
+        }
+
+        private boolean filterLower() {
+            for (int i = 1; i <= boundCount + 1; i++) {
+                t[i] = h[i] = i - 1;
+                d[i] = bounds[i] - bounds[i - 1];
+            }
+            for (int k : byMax) {
+                int x = minRanks[k], y = maxRanks[k];
+                int z = pathMax(t, x + 1);
+                int j = t[z];
+                if (--d[z] == 0) {
+                    t[z] = z + 1;
+                    z = pathMax(t, t[z]);
+                    t[z] = j;
+                }
+                pathSet(t, x + 1, z, z);
+                //More variables than values between the two bounds
+                if (d[z] < bounds[z] - bounds[y]) return false;
+                if (h[x] > x) {
+                    int w = pathMax(h, h[x]);
+                    if (!vars[k].removeBelow(bounds[w] - offsets[k])) return false;
+                    pathSet(h, x, w, w);
+                }
+                if (d[z] == bounds[z] - bounds[y]) {
+                    pathSet(h, h[y], j - 1, y);
+                    h[y] = j - 1;
+                }
+            }
+            return true;
+        }
+
+        private boolean filterUpper() {
+            for (int i = 0; i <= boundCount; i++) {
+                t[i] = h[i] = i + 1;
+                d[i] = bounds[i + 1] - bounds[i];
+            }
+            for (int i = vars.length - 1; i >= 0; i--) {
+                int k = byMin[i];
+                int x = maxRanks[k], y = minRanks[k];
+                int z = pathMin(t, x - 1);
+                int j = t[z];
+                if (--d[z] == 0) {
+                    t[z] = z - 1;
+                    z = pathMin(t, t[z]);
+                    t[z] = j;
+                }
+                pathSet(t, x - 1, z, z);
+                if (d[z] < bounds[y] - bounds[z]) return false;
+                if (h[x] < x) {
+                    int w = pathMin(h, h[x]);
+                    if (!vars[k].removeAbove(bounds[w] - 1 - offsets[k])) return false;
+                    pathSet(h, x, w, w);
+                }
+                if (d[z] == bounds[y] - bounds[z]) {
+                    pathSet(h, h[y], j + 1, y);
+                    h[y] = j + 1;
+                }
+            }
+            return true;
+        }
+
+        private static void pathSet(int[] tree, int from, int to, int root) {
+            for (int l = from; l != to; ) {
+                int k = l;
+                l = tree[k];
+                tree[k] = root;
+            }
+        }
+
+        private static int pathMin(int[] tree, int i) {
+            while (tree[i] < i) i = tree[i];
+            return i;
+        }
+
+        private static int pathMax(int[] tree, int i) {
+            while (tree[i] > i) i = tree[i];
+            return i;
+        }
+
+        Constraint copy(Variable[] variables) {
+            Variable[] copies = new Variable[vars.length];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = variables[vars[i].index];
+            }
+            return new BoundsAllDifferent(copies, offsets);
+        }
+    }
+
+    /**
+     * xs is lexicographically smaller than or equal to ys. With ys a permutation of xs this is the lex-leader
+     * constraint of a variable symmetry: of every set of symmetric solutions, only the smallest one survives.
+     */
+    static class LexLessEq extends Constraint {
+        final Variable[] xs, ys;
+
+        public LexLessEq(Variable[] xs, Variable[] ys) {
+            super(concat(xs, ys));
+            this.xs = xs;
+            this.ys = ys;
+        }
+
+        int events() {
+            return EVENT_BOUND;
+        }
+
+        //Only the first position that is not already fixed to equal values is constrained
+        boolean infer() {
+            for (int i = 0; i < xs.length; i++) {
+                Variable x = xs[i], y = ys[i];
+                if (!x.removeAbove(y.domain.max()) || !y.removeBelow(x.domain.min())) return false;
+                if (!x.isAssigned() || !y.isAssigned() || x.value() != y.value()) return true;
+            }
+            return true;
+        }
+
+        Constraint copy(Variable[] variables) {
+            Variable[] xCopies = new Variable[xs.length];
+            Variable[] yCopies = new Variable[ys.length];
+            for (int i = 0; i < xs.length; i++) {
+                xCopies[i] = variables[xs[i].index];
+                yCopies[i] = variables[ys[i].index];
+            }
+            return new LexLessEq(xCopies, yCopies);
+        }
+
+        private static Variable[] concat(Variable[] xs, Variable[] ys) {
+            Variable[] all = Arrays.copyOf(xs, xs.length + ys.length);
+            System.arraycopy(ys, 0, all, xs.length, ys.length);
+            return all;
+        }
+    }
+
+    /**
+     * x[0] < x[1] < ... < x[n - 1], or x[0] <= x[1] <= ... <= x[n - 1] when not strict, enforced on the bounds:
+     * every minimum is pushed above the minimum before it, and every maximum below the maximum after it.
+     */
+    static class Increasing extends Constraint {
+        final Variable[] vars;
+        final boolean strict;
+
+        public Increasing(Variable[] vars, boolean strict) {
+            super(vars);
+            this.vars = vars;
+            this.strict = strict;
+        }
+
+        int events() {
+            return EVENT_BOUND;
+        }
+
+        //Raising the minimums cannot lower a maximum and the other way around, so one pass each way is a fixpoint
+        boolean idempotent() {
+            return true;
+        }
+
+        boolean infer() {
+            int gap = strict ? 1 : 0;
+            for (int i = 1; i < vars.length; i++) {
+                if (!vars[i].removeBelow(vars[i - 1].domain.min() + gap)) return false;
+            }
+            for (int i = vars.length - 2; i >= 0; i--) {
+                if (!vars[i].removeAbove(vars[i + 1].domain.max() - gap)) return false;
+            }
+            return true;
+        }
+
+        Constraint copy(Variable[] variables) {
+            Variable[] copies = new Variable[vars.length];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = variables[vars[i].index];
+            }
+            return new Increasing(copies, strict);
+        }
+    }
+
+    /**
+     * x <= y + offset, enforced on the bounds
+     */
+    static class LessEq extends Constraint {
+        final Variable x, y;
+        final int offset;
+
+        public LessEq(Variable x, Variable y, int offset) {
+            super(x, y);
+            this.x = x;
+            this.y = y;
+            this.offset = offset;
+        }
+
+        public LessEq(Variable x, Variable y) {
+            this(x, y, 0);
+        }
+
+        int events() {
+            return EVENT_BOUND;
+        }
+
+        //Lowering the maximum of x and raising the minimum of y cannot move the other bounds
+        boolean idempotent() {
+            return true;
+        }
+
+        boolean infer() {
+            //x <= x + offset holds for every value or for none, and the bounds below would only creep towards it
+            if (x == y) return offset >= 0;
+            return x.removeAbove(clamp((long) y.domain.max() + offset))
+                    && y.removeBelow(clamp((long) x.domain.min() - offset));
+        }
+
+        Constraint copy(Variable[] variables) {
+            return new LessEq(variables[x.index], variables[y.index], offset);
+        }
+    }
+
+    /**
+     * x < y + offset, enforced on the bounds
+     */
+    static class LessThan extends LessEq {
+        public LessThan(Variable x, Variable y, int offset) {
+            super(x, y, offset - 1);
+        }
+
+        public LessThan(Variable x, Variable y) {
+            this(x, y, 0);
+        }
+
+        Constraint copy(Variable[] variables) {
+            return new LessThan(variables[x.index], variables[y.index], offset + 1);
+        }
+    }
+
+    /**
+     * min <= coefficients[0] * vars[0] + ... + coefficients[n - 1] * vars[n - 1] <= max, enforced on the bounds:
+     * every variable is kept within what the bounds of the others leave for it, until no bound moves.
+     */
+    static class Sum extends Constraint {
+        final Variable[] vars;
+        final int[] coefficients;
+        final long min, max;
+
+        public Sum(Variable[] vars, int[] coefficients, long min, long max) {
+            super(vars);
+            if (coefficients.length != vars.length) {
+                throw new IllegalArgumentException(coefficients.length + " coefficients for " + vars.length + " variables");
+            }
+            this.vars = vars;
+            this.coefficients = coefficients;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * The sum equals the value
+         */
+        public Sum(Variable[] vars, int[] coefficients, long value) {
+            this(vars, coefficients, value, value);
+        }
+
+        int events() {
+            return EVENT_BOUND;
+        }
+
+        boolean idempotent() {
+            return true;
+        }
+
+        boolean infer() {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+
+                //Smallest and largest value the sum can still take
+                long low = 0, high = 0;
+                for (int i = 0; i < vars.length; i++) {
+                    long a = coefficients[i], lo = vars[i].domain.min(), hi = vars[i].domain.max();
+                    low += a >= 0 ? a * lo : a * hi;
+                    high += a >= 0 ? a * hi : a * lo;
+                }
+                if (low > max || high < min) return false;
+
+                //Each term may take what the other terms leave of [min, max]
+                for (int i = 0; i < vars.length; i++) {
+                    long a = coefficients[i];
+                    if (a == 0) continue;
+                    Domain domain = vars[i].domain;
+                    long lo = domain.min(), hi = domain.max();
+                    long termLow = a >= 0 ? a * lo : a * hi, termHigh = a >= 0 ? a * hi : a * lo;
+                    long restLow = low - termLow, restHigh = high - termHigh;
+                    long termMax = max - restLow, termMin = min - restHigh;
+
+                    int newLo = clamp(a > 0 ? -Math.floorDiv(-termMin, a) : -Math.floorDiv(-termMax, a));
+                    int newHi = clamp(a > 0 ? Math.floorDiv(termMax, a) : Math.floorDiv(termMin, a));
+                    if (!vars[i].removeBelow(newLo) || !vars[i].removeAbove(newHi)) return false;
+                    if (domain.min() == lo && domain.max() == hi) continue;
+
+                    //Keep the sums up to date with the new bounds of this term
+                    long newTermLow = a >= 0 ? a * domain.min() : a * domain.max();
+                    long newTermHigh = a >= 0 ? a * domain.max() : a * domain.min();
+                    low += newTermLow - termLow;
+                    high += newTermHigh - termHigh;
+                    changed = true;
+                }
+            }
+            return true;
+        }
+
+        Constraint copy(Variable[] variables) {
+            Variable[] copies = new Variable[vars.length];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = variables[vars[i].index];
+            }
+            return new Sum(copies, coefficients, min, max);
+        }
+    }
+
+    /**
+     * Between min and max of the variables take the value
+     */
+    static class Count extends Constraint {
+        final Variable[] vars;
+        final int value;
+        final int min, max;
+
+        public Count(Variable[] vars, int value, int min, int max) {
+            super(vars);
+            this.vars = vars;
+            this.value = value;
+            this.min = min;
+            this.max = max;
+        }
+
+        //Once the count is decided either way, the variables that could still go either way are decided too
+        boolean idempotent() {
+            return true;
+        }
+
+        boolean infer() {
+            int taken = 0, possible = 0;
+            for (Variable v : vars) {
+                if (!v.domain.contains(value)) continue;
+                possible++;
+                if (v.isAssigned()) taken++;
+            }
+            if (taken > max || possible < min) return false;
+
+            if (taken == max && possible > taken) {
+                for (Variable v : vars) {
+                    if (!v.isAssigned() && !v.remove(value)) return false;
+                }
+            } else if (possible == min && possible > taken) {
+                for (Variable v : vars) {
+                    if (v.domain.contains(value) && !v.assign(value)) return false;
+                }
+            }
+            return true;
+        }
+
+        Constraint copy(Variable[] variables) {
+            Variable[] copies = new Variable[vars.length];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = variables[vars[i].index];
+            }
+            return new Count(copies, value, min, max);
+        }
+    }
+
+    /**
+     * No two queens attack each other, where rows[r] holds the column, in [0, n), of the queen in row r.
+     * Occupied columns and both kinds of diagonals are kept as bitmasks on the trail, so placing a queen prunes
+     * every other row with a few word operations instead of pairwise checks. With as many columns as rows every
+     * column takes a queen, so a free column that no row can take fails and one that only one row can take is
+     * assigned to it. Boards are limited to 32 rows, so that the 2n - 1 diagonals of each kind fit in a single word.
+     */
+    static class Queens extends Constraint {
+        static final int MAX_SIZE = 32;
+
+        private final long board; //One bit per column
+        private ReversibleLong placed; //Rows whose queen is already in the masks
+        private ReversibleLong columns;
+        private ReversibleLong diagonals; //Bit r + c for a queen at (r, c)
+        private ReversibleLong antiDiagonals; //Bit c - r + n - 1 for a queen at (r, c)
+
+        public Queens(Variable... rows) {
+            super(rows);
+            if (rows.length > MAX_SIZE) {
+                throw new IllegalArgumentException("At most " + MAX_SIZE + " rows, got " + rows.length);
+            }
+            this.board = rows.length == 0 ? 0L : -1L >>> (64 - rows.length);
+        }
+
+        int events() {
+            return EVENT_ASSIGN;
+        }
+
+        //Keeps placing the queens of rows that its own pruning assigns until there are none left
+        boolean idempotent() {
+            return true;
+        }
+
+        void attach(Solver solver) {
+            placed = new ReversibleLong(solver.trail, 0L);
+            columns = new ReversibleLong(solver.trail, 0L);
+            diagonals = new ReversibleLong(solver.trail, 0L);
+            antiDiagonals = new ReversibleLong(solver.trail, 0L);
+        }
+
+        boolean infer() {
+            int n = scope.length;
+            long rows = placed.get(), cols = columns.get(), diag = diagonals.get(), anti = antiDiagonals.get();
+
+            boolean placing = true;
+            while (placing) {
+                placing = false;
+                for (long open = board & ~rows; open != 0; open &= open - 1) {
+                    int r = Long.numberOfTrailingZeros(open);
+                    if (!scope[r].isAssigned()) continue;
+                    int c = scope[r].value();
+                    if (c < 0 || c >= n) return false;
+
+                    long column = 1L << c, diagonal = 1L << (r + c), antiDiagonal = 1L << (c - r + n - 1);
+                    if ((cols & column) != 0 || (diag & diagonal) != 0 || (anti & antiDiagonal) != 0) return false;
+                    cols |= column;
+                    diag |= diagonal;
+                    anti |= antiDiagonal;
+                    rows |= 1L << r;
+                    placing = true;
+                }
+                if (!placing) break;
+
+                //Shift both diagonal masks so that bit c stands for column c of row r
+                for (long open = board & ~rows; open != 0; open &= open - 1) {
+                    int r = Long.numberOfTrailingZeros(open);
+                    long antiShifted = r >= n - 1 ? anti << (r - n + 1) : anti >>> (n - 1 - r);
+                    if (!scope[r].removeAll(0, (cols | diag >>> r | antiShifted) & board)) return false;
+                }
+
+                //There are as many columns as rows, so every free column needs a queen of its own
+                long once = 0L, twice = 0L;
+                for (long open = board & ~rows; open != 0; open &= open - 1) {
+                    long allowed = scope[Long.numberOfTrailingZeros(open)].domain.bits(0) & board;
+                    twice |= once & allowed;
+                    once |= allowed;
+                }
+                long free = board & ~cols;
+                if ((once & free) != free) return false;
+                for (long single = free & ~twice; single != 0; single &= single - 1) {
+                    int c = Long.numberOfTrailingZeros(single);
+                    for (long open = board & ~rows; open != 0; open &= open - 1) {
+                        int r = Long.numberOfTrailingZeros(open);
+                        if (scope[r].domain.contains(c)) {
+                            if (!scope[r].assign(c)) return false;
+                            break;
+                        }
+                    }
+                }
+            }
+
+            placed.set(rows);
+            columns.set(cols);
+            diagonals.set(diag);
+            antiDiagonals.set(anti);
+            return true;
+        }
+
+        Constraint copy(Variable[] variables) {
+            Variable[] copies = new Variable[scope.length];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = variables[scope[i].index];
+            }
+            return new Queens(copies);
+        }
+    }
+
+    /**
+     * The scope takes the values of one of the allowed tuples, enforced with generalized arc consistency by
+     * compact-table (Demeulenaere et al., 2016). The tuples that are still valid under the current domains form a
+     * bitset, and every value of every variable has the bitset of the tuples that contain it. A value is supported
+     * while its bitset shares a bit with the valid tuples, which is checked at a remembered word first.
+     * The valid tuples are a reversible sparse bitset: only its non-zero words are visited, and the trail saves
+     * each word at most once per node, so a backtrack costs as much as the node changed.
+     */
+    static class Table extends Constraint implements Restorable {
+        final Variable[] vars;
+
+        //Shared with copies, never changed after construction
+        private final int[] bases; //Value represented by bit 0 of the values of each variable
+        private final long[][][] supports; //Per variable and value - base, the tuples containing it, or null for none
+        private final long[] initial; //The tuples whose every value was in the domains when the table was created
+        private final long[][] initialKnown; //The domain of each variable when the table was created
+
+        //Rolled back by the trail: slot w >= 0 is a word of current, -1 is limit and -2 - i is word i of known
+        private final long[] current; //The tuples that are still valid
+        private final int[] nonZero; //Indices of the words of current, the first limit of them are the non-zero ones
+        private int limit;
+        private final long[] known; //Every variable's domain as of the last call, words of a variable start at knownStart
+        private final int[] knownStart;
+
+        private ReversibleLong filtered; //1 once every variable has been filtered, the root call included
+        private Trail trail;
+        private int owner; //Id on the trail
+        private final int[] wordStamps, knownStamps; //Trail epoch in which each word was last saved
+        private int limitStamp;
+        private final int[][] residues; //Per variable and value - base, the word in which a support was last found
+        private final long[] mask; //Scratch, the tuples to keep or to drop
+
+        /**
+         * @param vars The scope
+         * @param tuples The allowed tuples, each with a value for every variable of the scope
+         */
+        public Table(Variable[] vars, int[][] tuples) {
+            super(vars);
+            this.vars = vars;
+            int arity = vars.length;
+
+            bases = new int[arity];
+            for (int i = 0; i < arity; i++) {
+                bases[i] = vars[i].domain.isEmpty() ? 0 : vars[i].domain.min();
+            }
+
+            //Tuples with a value outside a domain can never be taken, they do not get a bit at all
+            int count = 0;
+            for (int[] tuple : tuples) {
+                if (tuple.length != arity) {
+                    throw new IllegalArgumentException("Tuple of length " + tuple.length + " for " + arity + " variables");
+                }
+                if (isValid(tuple)) count++;
+            }
+
+            int words = (count + 63) >>> 6;
+            supports = new long[arity][][];
+            for (int i = 0; i < arity; i++) {
+                Domain domain = vars[i].domain;
+                supports[i] = new long[domain.isEmpty() ? 0 : domain.max() - bases[i] + 1][];
+            }
+            int bit = 0;
+            for (int[] tuple : tuples) {
+                if (!isValid(tuple)) continue;
+                for (int i = 0; i < arity; i++) {
+                    long[][] values = supports[i];
+                    int v = tuple[i] - bases[i];
+                    if (values[v] == null) values[v] = new long[words];
+                    values[v][bit >>> 6] |= 1L << bit;
+                }
+                bit++;
+            }
+
+            initial = new long[words];
+            for (int w = 0; w < words; w++) {
+                initial[w] = w < words - 1 || (count & 63) == 0 ? -1L : -1L >>> (64 - (count & 63));
+            }
+            initialKnown = new long[arity][];
+            for (int i = 0; i < arity; i++) {
+                initialKnown[i] = new long[(supports[i].length + 63) >>> 6];
+                Domain domain = vars[i].domain;
+                if (domain.isEmpty()) continue;
+                for (int v = domain.min(); v != Integer.MAX_VALUE; v = domain.next(v)) {
+                    initialKnown[i][(v - bases[i]) >>> 6] |= 1L << (v - bases[i]);
+                }
+            }
+
+            current = initial.clone();
+            nonZero = new int[words];
+            knownStart = new int[arity + 1];
+            for (int i = 0; i < arity; i++) {
+                knownStart[i + 1] = knownStart[i] + initialKnown[i].length;
+            }
+            known = new long[knownStart[arity]];
+            wordStamps = new int[words];
+            knownStamps = new int[known.length];
+            residues = new int[arity][];
+            mask = new long[words];
+            reset();
+        }
+
+        //A copy over other variables, sharing everything that does not change during the search
+        private Table(Variable[] vars, Table other) {
+            super(vars);
+            this.vars = vars;
+            bases = other.bases;
+            supports = other.supports;
+            initial = other.initial;
+            initialKnown = other.initialKnown;
+            current = initial.clone();
+            nonZero = new int[initial.length];
+            knownStart = other.knownStart;
+            known = new long[other.known.length];
+            wordStamps = new int[initial.length];
+            knownStamps = new int[known.length];
+            residues = new int[vars.length][];
+            mask = new long[initial.length];
+            reset();
+        }
+
+        private boolean isValid(int[] tuple) {
+            for (int i = 0; i < vars.length; i++) {
+                if (!vars[i].domain.contains(tuple[i])) return false;
+            }
+            return true;
+        }
+
+        //Every valid tuple, with each variable known to have its domain from when the table was created
+        private void reset() {
+            for (int w = 0; w < nonZero.length; w++) {
+                nonZero[w] = w;
+            }
+            limit = nonZero.length;
+            for (int i = 0; i < vars.length; i++) {
+                System.arraycopy(initialKnown[i], 0, known, knownStart[i], initialKnown[i].length);
+                residues[i] = new int[supports[i].length];
+            }
+        }
+
+        boolean idempotent() {
+            return true;
+        }
+
+        void attach(Solver solver) {
+            trail = solver.trail;
+            owner = trail.register(this);
+            filtered = new ReversibleLong(trail, 0L);
+        }
+
+        public void restore(int slot, long value) {
+            if (slot >= 0) current[slot] = value;
+            else if (slot == -1) limit = (int) value;
+            else known[-2 - slot] = value;
+        }
+
+        boolean infer() {
+            if (limit == 0) return false;
+
+            //Drop the tuples of every value removed since the last call
+            int updated = -1, updates = 0;
+            for (int i = 0; i < vars.length; i++) {
+                int before = 0;
+                for (int k = knownStart[i]; k < knownStart[i + 1]; k++) {
+                    before += Long.bitCount(known[k]);
+                }
+                int size = vars[i].domain.size();
+                if (size == before) continue;
+                if (size == 0) return false;
+                updated = i;
+                updates++;
+                if (!update(i, before - size)) return false;
+            }
+
+            //Only the tuples of the one variable that changed were dropped, so its own values kept their supports.
+            //An assigned variable is supported by every valid tuple left.
+            boolean skip = updates == 1 && filtered.get() == 1L;
+            for (int i = 0; i < vars.length; i++) {
+                if (skip && i == updated || vars[i].isAssigned()) continue;
+                if (!filter(i)) return false;
+            }
+            filtered.set(1L);
+            return true;
+        }
+
+        //Intersects the valid tuples with the supports of the domain of variable i, which lost the given number of values
+        private boolean update(int i, int removed) {
+            Domain domain = vars[i].domain;
+            long[][] values = supports[i];
+            int base = bases[i], start = knownStart[i];
+            for (int k = 0; k < limit; k++) {
+                mask[nonZero[k]] = 0L;
+            }
+
+            //Whichever is smaller: drop the tuples of the removed values, or keep the tuples of the values left
+            boolean keep = removed > domain.size();
+            for (int k = start; k < knownStart[i + 1]; k++) {
+                long word = known[k];
+                for (long bits = word; bits != 0; bits &= bits - 1) {
+                    int v = ((k - start) << 6) + Long.numberOfTrailingZeros(bits);
+                    if (domain.contains(base + v)) continue;
+                    word &= ~(bits & -bits);
+                    if (!keep) or(values[v]);
+                }
+                if (word != known[k]) {
+                    saveKnown(k);
+                    known[k] = word;
+                }
+                if (!keep) continue;
+                for (long bits = word; bits != 0; bits &= bits - 1) {
+                    or(values[((k - start) << 6) + Long.numberOfTrailingZeros(bits)]);
+                }
+            }
+
+            for (int k = limit - 1; k >= 0; k--) {
+                int w = nonZero[k];
+                long word = keep ? current[w] & mask[w] : current[w] & ~mask[w];
+                if (word == current[w]) continue;
+                saveWord(w);
+                current[w] = word;
+                if (word == 0L) {
+                    saveLimit();
+                    nonZero[k] = nonZero[limit - 1];
+                    nonZero[limit - 1] = w;
+                    limit--;
+                }
+            }
+            return limit > 0;
+        }
+
+        //Adds the tuples to the mask, on the non-zero words only
+        private void or(long[] tuples) {
+            if (tuples == null) return;
+            for (int k = 0; k < limit; k++) {
+                int w = nonZero[k];
+                mask[w] |= tuples[w];
+            }
+        }
+
+        //Removes every value of variable i without a valid tuple
+        private boolean filter(int i) {
+            long[][] values = supports[i];
+            int[] residue = residues[i];
+            int start = knownStart[i];
+            for (int k = start; k < knownStart[i + 1]; k++) {
+                long unsupported = 0L;
+                for (long bits = known[k]; bits != 0; bits &= bits - 1) {
+                    int v = ((k - start) << 6) + Long.numberOfTrailingZeros(bits);
+                    if (!isSupported(values[v], residue, v)) unsupported |= 1L << v;
+                }
+                if (unsupported == 0L) continue;
+                if (!vars[i].removeAll(bases[i] + ((k - start) << 6), unsupported)) return false;
+                saveKnown(k);
+                known[k] &= ~unsupported;
+            }
+            return true;
+        }
+
+        private boolean isSupported(long[] tuples, int[] residue, int v) {
+            if (tuples == null) return false;
+            int r = residue[v];
+            if ((current[r] & tuples[r]) != 0) return true;
+            for (int k = 0; k < limit; k++) {
+                int w = nonZero[k];
+                if ((current[w] & tuples[w]) != 0) {
+                    residue[v] = w;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void saveWord(int w) {
+            if (trail != null && wordStamps[w] != trail.epoch) {
+                trail.save(owner, w, current[w]);
+                wordStamps[w] = trail.epoch;
+            }
+        }
+
+        private void saveKnown(int k) {
+            if (trail != null && knownStamps[k] != trail.epoch) {
+                trail.save(owner, -2 - k, known[k]);
+                knownStamps[k] = trail.epoch;
+            }
+        }
+
+        private void saveLimit() {
+            if (trail != null && limitStamp != trail.epoch) {
+                trail.save(owner, -1, limit);
+                limitStamp = trail.epoch;
+            }
+        }
+
+        Constraint copy(Variable[] variables) {
+            Variable[] copies = new Variable[vars.length];
+            for (int i = 0; i < copies.length; i++) {
+                copies[i] = variables[vars[i].index];
+            }
+            return new Table(copies, this);
+        }
+    }
+
+    /**
+     * Maps a solution to a symmetric one, i.e. another solution of the same model.
+     */
+    interface Symmetry {
+        /**
+         * @param solution The value of every variable, must not be changed
+         * @param image Receives the value of every variable in the symmetric solution
+         */
+        void map(int[] solution, int[] image);
+    }
+
+    /**
+     * Decides which variable to branch on next. Selectors that learn from the search hear about it through
+     * the other methods, which do nothing by default.
+     */
+    interface VariableSelector {
+        /**
+         * @return The index of an unassigned variable of the solver, or -1 if every variable is assigned
+         */
+        int select(Solver solver);
+
+        /**
+         * Whether select reads the size index of the solver, which is then kept up to date on every domain change.
+         * Without it {@link Solver#sizes} is null.
+         */
+        default boolean usesSizes(Solver solver) {
+            return false;
+        }
+
+        /**
+         * Whether reduced should be called, which costs a call on every domain change
+         */
+        default boolean usesReductions() {
+            return false;
+        }
+
+        /**
+         * Called whenever the domain of a variable shrinks, if usesReductions says so
+         */
+        default void reduced(Solver solver, Variable v) {
+        }
+
+        /**
+         * Called whenever a constraint fails
+         */
+        default void failed(Solver solver, Constraint c) {
+        }
+
+        /**
+         * Called right before the search assigns a value to the branching variable
+         */
+        default void deciding(Solver solver, Variable v, int value) {
+        }
+
+        /**
+         * Called once that assignment has been propagated
+         * @param consistent False if the assignment or its propagation failed
+         */
+        default void decided(Solver solver, Variable v, int value, boolean consistent) {
+        }
+
+        /**
+         * A selector for another solver of the same model, e.g. one searching part of the tree in parallel.
+         * Selectors that keep state about their search return a new one, the others can return themselves.
+         */
+        default VariableSelector copy() {
+            return this;
+        }
+    }
+
+    /**
+     * Decides in which order the values of the branching variable are tried.
+     */
+    interface ValueOrder {
+        /**
+         * Writes the values of the variable's domain to the buffer, in the order they should be tried
+         * @param buffer Has room for at least the size of the domain
+         * @return The number of values written
+         */
+        int order(Variable v, int[] buffer);
+
+        /**
+         * A value order for another solver of the same model, see {@link VariableSelector#copy()}
+         */
+        default ValueOrder copy() {
+            return this;
+        }
+    }
+
+    /**
+     * The variables of a solver grouped by the size of their domain, so that the smallest domain is found without
+     * looking at every variable. Sizes up to 62 have a bucket each, larger sizes share the last one. Every bucket
+     * is a bitset of variable indices, which breaks ties towards the lowest index.
+     * Domains report their size when the trail restores them, so the buckets never need saving themselves.
+     */
+    static final class SizeIndex {
+        private static final int LAST = 63;
+
+        private final Variable[] variables;
+        private final long[][] buckets;
+        private final int[] counts; //Number of variables in each bucket
+        private long nonEmpty; //Bit b is set when bucket b holds a variable
+        private final int[] bucketOf;
+
+        SizeIndex(Variable[] variables) {
+            this.variables = variables;
+            this.buckets = new long[LAST + 1][(variables.length + 63) >>> 6];
+            this.counts = new int[LAST + 1];
+            this.bucketOf = new int[variables.length];
+            for (int i = 0; i < variables.length; i++) {
+                int b = bucket(variables[i].domain.size());
+                bucketOf[i] = b;
+                buckets[b][i >>> 6] |= 1L << i;
+                if (counts[b]++ == 0) nonEmpty |= 1L << b;
+            }
+        }
+
+        private static int bucket(int size) {
+            return Math.min(size, LAST);
+        }
+
+        /**
+         * Moves a variable to the bucket of its new domain size
+         * @param i The index of the variable
+         */
+        void update(int i, int size) {
+            int to = bucket(size);
+            int from = bucketOf[i];
+            if (to == from) return;
+            buckets[from][i >>> 6] &= ~(1L << i);
+            if (--counts[from] == 0) nonEmpty &= ~(1L << from);
+            buckets[to][i >>> 6] |= 1L << i;
+            if (counts[to]++ == 0) nonEmpty |= 1L << to;
+            bucketOf[i] = to;
+        }
+
+        /**
+         * The lowest index among the unassigned variables with the smallest domain, -1 if every variable is assigned
+         */
+        int smallest() {
+            long open = nonEmpty & ~3L;
+            if (open == 0) return -1;
+            int b = Long.numberOfTrailingZeros(open);
+            long[] bucket = buckets[b];
+            if (b < LAST) {
+                for (int w = 0; ; w++) {
+                    if (bucket[w] != 0) return (w << 6) + Long.numberOfTrailingZeros(bucket[w]);
+                }
+            }
+
+            //The sizes in the last bucket differ
+            int best = -1;
+            int bestSize = Integer.MAX_VALUE;
+            for (int w = 0; w < bucket.length; w++) {
+                for (long bits = bucket[w]; bits != 0; bits &= bits - 1) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    int size = variables[i].domain.size();
+                    if (size < bestSize) {
+                        best = i;
+                        bestSize = size;
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Like {@link #smallest()}, but picks uniformly at random among the variables with the smallest domain
+         */
+        int smallest(Random random) {
+            long open = nonEmpty & ~3L;
+            if (open == 0) return -1;
+            int b = Long.numberOfTrailingZeros(open);
+            long[] bucket = buckets[b];
+            if (b < LAST) {
+                int k = random.nextInt(counts[b]);
+                for (int w = 0; ; w++) {
+                    int bits = Long.bitCount(bucket[w]);
+                    if (k < bits) {
+                        long word = bucket[w];
+                        for (; k > 0; k--) {
+                            word &= word - 1;
+                        }
+                        return (w << 6) + Long.numberOfTrailingZeros(word);
+                    }
+                    k -= bits;
+                }
+            }
+
+            //Reservoir sampling, every tied variable ends up chosen with the same probability
+            int best = -1;
+            int bestSize = Integer.MAX_VALUE;
+            int ties = 0;
+            for (int w = 0; w < bucket.length; w++) {
+                for (long bits = bucket[w]; bits != 0; bits &= bits - 1) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    int size = variables[i].domain.size();
+                    if (size < bestSize) {
+                        best = i;
+                        bestSize = size;
+                        ties = 1;
+                    } else if (size == bestSize && random.nextInt(++ties) == 0) {
+                        best = i;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Smallest domain first, ties go to the lowest index.
+     */
+    static class MinDomain implements VariableSelector {
+        //Up to this many variables a scan is cheaper than keeping the size index up to date
+        static final int SCAN_LIMIT = 32;
+
+        public boolean usesSizes(Solver solver) {
+            return solver.variables.length > SCAN_LIMIT;
+        }
+
+        public int select(Solver solver) {
+            if (solver.sizes != null) return solver.sizes.smallest();
+            int best = -1;
+            int bestSize = Integer.MAX_VALUE;
+            for (int i = 0; i < solver.variables.length; i++) {
+                int size = solver.variables[i].domain.size();
+                if (size > 1 && size < bestSize) {
+                    best = i;
+                    bestSize = size;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Smallest domain first, ties are broken uniformly at random.
+     */
+    static class RandomMinDomain implements VariableSelector {
+        final Random random;
+
+        RandomMinDomain(long seed) {
+            this.random = new Random(seed);
+        }
+
+        public boolean usesSizes(Solver solver) {
+            return solver.variables.length > MinDomain.SCAN_LIMIT;
+        }
+
+        public int select(Solver solver) {
+            if (solver.sizes != null) return solver.sizes.smallest(random);
+            int best = -1;
+            int bestSize = Integer.MAX_VALUE;
+            int ties = 0;
+            for (int i = 0; i < solver.variables.length; i++) {
+                int size = solver.variables[i].domain.size();
+                if (size <= 1) continue;
+                if (size < bestSize) {
+                    best = i;
+                    bestSize = size;
+                    ties = 1;
+                } else if (size == bestSize && random.nextInt(++ties) == 0) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * The unassigned variable with the lowest index.
+     */
+    static class Lexicographic implements VariableSelector {
+        public int select(Solver solver) {
+            for (int i = 0; i < solver.variables.length; i++) {
+                if (solver.variables[i].domain.size() > 1) return i;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * An unassigned variable chosen uniformly at random.
+     */
+    static class RandomVariable implements VariableSelector {
+        final Random random;
+
+        RandomVariable(long seed) {
+            this.random = new Random(seed);
+        }
+
+        public int select(Solver solver) {
+            int best = -1;
+            int open = 0;
+            for (int i = 0; i < solver.variables.length; i++) {
+                if (solver.variables[i].domain.size() > 1 && random.nextInt(++open) == 0) best = i;
+            }
+            return best;
+        }
+    }
+
+    /**
+     * dom/wdeg: the smallest ratio of domain size to weighted degree first, ties go to the lowest index.
+     * Every constraint starts with weight 1 and gains 1 each time it fails, so the search is drawn to the
+     * variables of the constraints that fail most. The weighted degree of a variable sums the weights of every
+     * constraint on it, also of those whose other variables are all assigned.
+     */
+    static class DomWdeg implements VariableSelector {
+        private long[] wdeg; //Per variable
+
+        public int select(Solver solver) {
+            long[] wdeg = weights(solver);
+            int best = -1;
+            long bestSize = 0, bestWeight = 1;
+            for (int i = 0; i < solver.variables.length; i++) {
+                int size = solver.variables[i].domain.size();
+                //size / wdeg[i] < bestSize / bestWeight
+                if (size > 1 && (best == -1 || size * bestWeight < bestSize * wdeg[i])) {
+                    best = i;
+                    bestSize = size;
+                    bestWeight = wdeg[i];
+                }
+            }
+            return best;
+        }
+
+        public void failed(Solver solver, Constraint c) {
+            long[] wdeg = weights(solver);
+            for (Variable v : c.scope) {
+                wdeg[v.index]++;
+            }
+        }
+
+        private long[] weights(Solver solver) {
+            if (wdeg == null) {
+                wdeg = new long[solver.variables.length];
+                for (int i = 0; i < wdeg.length; i++) {
+                    wdeg[i] = Math.max(1, solver.variables[i].watchers.length);
+                }
+            }
+            return wdeg;
+        }
+
+        public VariableSelector copy() {
+            return new DomWdeg();
+        }
+    }
+
+    /**
+     * Activity based search: the variables whose domains were reduced most often, and most recently, first.
+     * A variable gains activity whenever the propagation of a decision reduces its domain, and all activities
+     * decay after every decision. Activity is weighed against the domain size, so ties and the start of the
+     * search fall back to the smallest domain. Values are tried in ascending order.
+     */
+    static class Activity implements VariableSelector {
+        final double decay;
+        private double[] activity; //Per variable, only relative values matter
+        private int[] bumped; //Per variable, the last decision that raised its activity
+        private int decisions;
+        private double increment = 1; //Grows instead of every activity decaying
+
+        /**
+         * @param decay Fraction of its activity a variable keeps per decision, e.g. 0.95
+         */
+        Activity(double decay) {
+            this.decay = decay;
+        }
+
+        Activity() {
+            this(0.95);
+        }
+
+        public int select(Solver solver) {
+            init(solver);
+            int best = -1;
+            double bestScore = -1;
+            for (int i = 0; i < solver.variables.length; i++) {
+                int size = solver.variables[i].domain.size();
+                if (size <= 1) continue;
+                double score = (1 + activity[i]) / size;
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+
+        public boolean usesReductions() {
+            return true;
+        }
+
+        public void reduced(Solver solver, Variable v) {
+            init(solver);
+            if (bumped[v.index] == decisions) return;
+            bumped[v.index] = decisions;
+            activity[v.index] += increment;
+        }
+
+        public void deciding(Solver solver, Variable v, int value) {
+            decisions++;
+        }
+
+        public void decided(Solver solver, Variable v, int value, boolean consistent) {
+            increment /= decay;
+            if (increment > 1e100) {
+                //Scale everything down before it overflows, the order stays the same
+                for (int i = 0; i < activity.length; i++) {
+                    activity[i] *= 1e-100;
+                }
+                increment *= 1e-100;
+            }
+        }
+
+        private void init(Solver solver) {
+            if (activity != null) return;
+            activity = new double[solver.variables.length];
+            bumped = new int[solver.variables.length];
+            Arrays.fill(bumped, -1);
+        }
+
+        public VariableSelector copy() {
+            return new Activity(decay);
+        }
+    }
+
+    /**
+     * Impact based search. The impact of an assignment is the fraction of the search space, the product of the
+     * domain sizes, that its propagation removed, 1 if it failed. Averaged per variable and value, impacts pick
+     * the variable whose values cut the most and then try its values with the least impact first.
+     * Values that were never tried count as 0, so they are tried first.
+     * Choosing costs a pass over every value of every variable.
+     */
+    static class Impact implements VariableSelector, ValueOrder {
+        private double[][] impacts; //Per variable, the average impact of value base + i
+        private int[][] tries; //Per variable, how often value base + i was assigned
+        private double before; //Log of the search space right before the current decision
+        private double[] logs = new double[0]; //Natural logarithm of every domain size seen so far
+
+        public int select(Solver solver) {
+            init(solver);
+            int best = -1;
+            double bestImpact = -1;
+            int bestSize = Integer.MAX_VALUE;
+            for (int i = 0; i < solver.variables.length; i++) {
+                Domain domain = solver.variables[i].domain;
+                int size = domain.size();
+                if (size <= 1) continue;
+                double impact = 0;
+                for (int v = domain.min(); v != Integer.MAX_VALUE; v = domain.next(v)) {
+                    impact += impact(i, v - domain.base);
+                }
+                if (impact > bestImpact || impact == bestImpact && size < bestSize) {
+                    best = i;
+                    bestImpact = impact;
+                    bestSize = size;
+                }
+            }
+            return best;
+        }
+
+        //Least impact first, ties in ascending order
+        public int order(Variable v, int[] buffer) {
+            int count = 0;
+            for (int value = v.domain.min(); value != Integer.MAX_VALUE; value = v.domain.next(value)) {
+                double impact = impact(v, value);
+                int j = count++;
+                for (; j > 0 && impact(v, buffer[j - 1]) > impact; j--) {
+                    buffer[j] = buffer[j - 1];
+                }
+                buffer[j] = value;
+            }
+            return count;
+        }
+
+        public void deciding(Solver solver, Variable v, int value) {
+            init(solver);
+            before = logSpace(solver);
+        }
+
+        public void decided(Solver solver, Variable v, int value, boolean consistent) {
+            double impact = consistent ? 1 - Math.exp(logSpace(solver) - before) : 1;
+            int i = value - v.domain.base;
+            if (i >= impacts[v.index].length) {
+                int length = Math.max(i + 1, 2 * impacts[v.index].length);
+                impacts[v.index] = Arrays.copyOf(impacts[v.index], length);
+                tries[v.index] = Arrays.copyOf(tries[v.index], length);
+            }
+            int n = ++tries[v.index][i];
+            impacts[v.index][i] += (impact - impacts[v.index][i]) / n;
+        }
+
+        private double impact(int variable, int i) {
+            return i < impacts[variable].length ? impacts[variable][i] : 0;
+        }
+
+        private double impact(Variable v, int value) {
+            return impacts == null ? 0 : impact(v.index, value - v.domain.base);
+        }
+
+        private double logSpace(Solver solver) {
+            double log = 0;
+            for (Variable v : solver.variables) {
+                int size = v.domain.size();
+                if (size >= logs.length) {
+                    int old = logs.length;
+                    logs = Arrays.copyOf(logs, Math.max(size + 1, 2 * old));
+                    for (int s = old; s < logs.length; s++) {
+                        logs[s] = Math.log(s);
+                    }
+                }
+                log += logs[size];
+            }
+            return log;
+        }
+
+        private void init(Solver solver) {
+            if (impacts != null) return;
+            impacts = new double[solver.variables.length][0];
+            tries = new int[solver.variables.length][0];
+        }
+
+        public Impact copy() {
+            return new Impact();
+        }
+    }
+
+    static class AscendingValues implements ValueOrder {
+        public int order(Variable v, int[] buffer) {
+            int count = 0;
+            for (int value = v.domain.min(); value != Integer.MAX_VALUE; value = v.domain.next(value)) {
+                buffer[count++] = value;
+            }
+            return count;
+        }
+    }
+
+    static class DescendingValues extends AscendingValues {
+        public int order(Variable v, int[] buffer) {
+            int count = super.order(v, buffer);
+            for (int i = 0, j = count - 1; i < j; i++, j--) {
+                int tmp = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = tmp;
+            }
+            return count;
+        }
+    }
+
+    static class RandomValues extends AscendingValues {
+        final Random random;
+
+        RandomValues(long seed) {
+            this.random = new Random(seed);
+        }
+
+        public int order(Variable v, int[] buffer) {
+            int count = super.order(v, buffer);
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = tmp;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * How many failures each run of a restarting search may have before it starts over from the root.
+     */
+    interface RestartPolicy {
+        /**
+         * @param run The number of restarts so far
+         * @return The failure budget of the run, at least 1
+         */
+        long failures(int run);
+    }
+
+    /**
+     * The Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, ... times a scale. Short runs keep coming back, while every
+     * budget is eventually exceeded, which is within a constant factor of the best fixed policy.
+     */
+    static class Luby implements RestartPolicy {
+        final long scale;
+
+        Luby(long scale) {
+            this.scale = scale;
+        }
+
+        public long failures(int run) {
+            //Find the smallest complete block 1, 1, 2, ..., 2^(k-1) containing the run, then descend into it
+            long size = 1;
+            int exponent = 0;
+            while (size < run + 1) {
+                size = 2 * size + 1;
+                exponent++;
+            }
+            long x = run;
+            while (size - 1 != x) {
+                size = (size - 1) >> 1;
+                exponent--;
+                x %= size;
+            }
+            return scale << exponent;
+        }
+    }
+
+    /**
+     * Budgets that grow by a constant factor every run.
+     */
+    static class Geometric implements RestartPolicy {
+        final long first;
+        final double factor;
+
+        Geometric(long first, double factor) {
+            this.first = first;
+            this.factor = factor;
+        }
+
+        public long failures(int run) {
+            return (long) Math.min(Long.MAX_VALUE, first * Math.pow(factor, run));
+        }
+    }
+
+    /**
+     * Combinations of assignments that lead to no solution, such as the subtrees a restarting search has already
+     * explored. Every nogood watches two of its assignments that do not hold, and is only looked at again when
+     * one of those is made. Backtracking never invalidates the watches, so they are not trailed.
+     */
+    static final class NogoodStore {
+        private final Variable[] variables;
+        private int[][] nogoodVariables = new int[16][];
+        private int[][] nogoodValues = new int[16][]; //The watched assignments are at positions 0 and 1
+        private int size;
+        private final int[][][] watches; //Per variable and value - base, the count and then the watching nogoods
+        private final int[] pending; //Variables assigned since the last propagation
+        private final boolean[] isPending;
+        private int pendingSize;
+        private boolean rescan; //Whether the watches must be chosen again from the current state
+
+        NogoodStore(Variable[] variables) {
+            this.variables = variables;
+            this.watches = new int[variables.length][][];
+            this.pending = new int[variables.length];
+            this.isPending = new boolean[variables.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Adds the nogood that the variables do not all take the given values. It takes effect from the root
+         * of the next search run, see {@link #restart()}.
+         * @param vars The indices of the variables
+         */
+        void add(int[] vars, int[] values) {
+            if (size == nogoodVariables.length) {
+                nogoodVariables = Arrays.copyOf(nogoodVariables, 2 * size);
+                nogoodValues = Arrays.copyOf(nogoodValues, 2 * size);
+            }
+            nogoodVariables[size] = vars;
+            nogoodValues[size] = values;
+            size++;
+        }
+
+        /**
+         * Has the next propagation, which should be at the root, choose every watch again
+         */
+        void restart() {
+            rescan = true;
+        }
+
+        /**
+         * Called when a variable becomes assigned
+         */
+        void assigned(int variable) {
+            if (isPending[variable]) return;
+            isPending[variable] = true;
+            pending[pendingSize++] = variable;
+        }
+
+        boolean idle() {
+            return !rescan && pendingSize == 0;
+        }
+
+        /**
+         * Removes the values that would complete a nogood, given the assignments made since the last call
+         * @return False if every assignment of a nogood holds
+         */
+        boolean propagate() {
+            boolean consistent = !rescan || watchAll();
+            while (consistent && pendingSize > 0) {
+                int x = pending[--pendingSize];
+                isPending[x] = false;
+                //The assignment may have been undone by a failure before it was propagated
+                if (variables[x].isAssigned()) consistent = propagate(x, variables[x].value());
+            }
+            if (!consistent) {
+                while (pendingSize > 0) {
+                    isPending[pending[--pendingSize]] = false;
+                }
+            }
+            return consistent;
+        }
+
+        private boolean watchAll() {
+            rescan = false;
+            for (int[][] lists : watches) {
+                if (lists == null) continue;
+                for (int[] list : lists) {
+                    if (list != null) list[0] = 0;
+                }
+            }
+            while (pendingSize > 0) {
+                isPending[pending[--pendingSize]] = false;
+            }
+
+            for (int k = 0; k < size; k++) {
+                int[] vars = nogoodVariables[k], values = nogoodValues[k];
+                //Move up to two assignments that do not hold to the front
+                int free = 0;
+                for (int j = 0; j < vars.length && free < 2; j++) {
+                    if (!holds(vars[j], values[j])) swap(vars, values, j, free++);
+                }
+                if (free == 0) return false;
+                if (free == 1) {
+                    //Everything else holds for the rest of this run
+                    if (!variables[vars[0]].remove(values[0])) return false;
+                    continue;
+                }
+                watch(vars[0], values[0], k);
+                watch(vars[1], values[1], k);
+            }
+            return true;
+        }
+
+        private boolean propagate(int x, int a) {
+            int[][] lists = watches[x];
+            int i = a - variables[x].domain.base;
+            if (lists == null || i >= lists.length || lists[i] == null) return true;
+
+            int[] list = lists[i];
+            int count = list[0];
+            int kept = 0;
+            for (int r = 1; r <= count; r++) {
+                int k = list[r];
+                int[] vars = nogoodVariables[k], values = nogoodValues[k];
+                if (vars[0] == x && values[0] == a) swap(vars, values, 0, 1);
+
+                //Already satisfied
+                if (!variables[vars[0]].domain.contains(values[0])) {
+                    list[++kept] = k;
+                    continue;
+                }
+
+                //Watch another assignment that does not hold instead
+                int j = 2;
+                while (j < vars.length && holds(vars[j], values[j])) {
+                    j++;
+                }
+                if (j < vars.length) {
+                    swap(vars, values, 1, j);
+                    watch(vars[1], values[1], k);
+                    continue;
+                }
+
+                //Every other assignment holds, so the first one must not
+                list[++kept] = k;
+                if (holds(vars[0], values[0]) || !variables[vars[0]].remove(values[0])) {
+                    System.arraycopy(list, r + 1, list, kept + 1, count - r);
+                    list[0] = kept + count - r;
+                    return false;
+                }
+            }
+            list[0] = kept;
+            return true;
+        }
+
+        private boolean holds(int variable, int value) {
+            Domain domain = variables[variable].domain;
+            return domain.size() == 1 && domain.min() == value;
+        }
+
+        private void watch(int variable, int value, int nogood) {
+            int i = value - variables[variable].domain.base;
+            int[][] lists = watches[variable];
+            if (lists == null || i >= lists.length) {
+                lists = watches[variable] = lists == null ? new int[i + 1][] : Arrays.copyOf(lists, i + 1);
+            }
+            int[] list = lists[i];
+            if (list == null) {
+                list = lists[i] = new int[4];
+            } else if (list[0] + 1 == list.length) {
+                list = lists[i] = Arrays.copyOf(list, 2 * list.length);
+            }
+            list[++list[0]] = nogood;
+        }
+
+        private static void swap(int[] vars, int[] values, int i, int j) {
+            int var = vars[i], value = values[i];
+            vars[i] = vars[j];
+            values[i] = values[j];
+            vars[j] = var;
+            values[j] = value;
+        }
+    }
+
+    /**
+     * Lists the solutions of a model with one of a few well known shapes directly instead of searching for them.
+     * Each solution is made from the previous one in place, in constant amortized time:
+     * <ul>
+     * <li>No constraints at all: every combination of values, in reflected Gray code order, so that consecutive
+     * solutions differ in a single variable (Knuth's Algorithm H)</li>
+     * <li>A single {@link Increasing} chain over every variable, all with the same range of values: the combinations
+     * of that range, with repetition if the chain is not strict, in revolving door order, so that consecutive
+     * solutions differ in at most two variables (Knuth's Algorithm R)</li>
+     * <li>A single {@link AllDifferent} without offsets over every variable, all with the same n values for n
+     * variables: the permutations of those values by Heap's algorithm, so that consecutive solutions differ by a swap</li>
+     * </ul>
+     * The first solution is the smallest one in lexicographic order, the others follow in the order of the generator.
+     */
+    static abstract class Enumerator {
+        final long count; //Number of solutions, known before listing any
+
+        Enumerator(long count) {
+            this.count = count;
+        }
+
+        /**
+         * Recognizes the shape of the model of the solver
+         * @return The enumerator of its solutions, or null if the model has to be searched
+         */
+        static Enumerator of(Solver solver) {
+            if (solver.symmetries.length > 0 || solver.nogoods != null) return null;
+            try {
+                if (solver.constraints.length == 0) return new GrayCode(solver.variables);
+                if (solver.constraints.length > 1) return null;
+                Constraint c = solver.constraints[0];
+                if (c instanceof Increasing) return RevolvingDoor.of((Increasing) c, solver.variables.length);
+                if (c instanceof AllDifferent) return Heap.of((AllDifferent) c, solver.variables.length);
+            } catch (ArithmeticException e) {
+                //Too many solutions to count in a long, the search counts them as far as it gets
+            }
+            return null;
+        }
+
+        /**
+         * Hands the solutions to the listener, until there are none left, the listener ends it or the flag is set
+         * @param solution Receives the value of every variable, indexed like the variables of the solver
+         * @return The number of solutions handed to the listener
+         */
+        abstract long enumerate(int[] solution, SolutionListener listener, AtomicBoolean stop);
+
+        //The index of every variable of the scope, or null unless the scope holds every variable exactly once
+        static int[] positions(Variable[] scope, int variableCount) {
+            if (scope.length != variableCount) return null;
+            boolean[] seen = new boolean[variableCount];
+            int[] positions = new int[scope.length];
+            for (int i = 0; i < scope.length; i++) {
+                if (seen[scope[i].index]) return null;
+                seen[scope[i].index] = true;
+                positions[i] = scope[i].index;
+            }
+            return positions;
+        }
+    }
+
+    static final class GrayCode extends Enumerator {
+        private final int[][] values; //Of every variable, in increasing order
+        private final int[] open; //The variables with more than one value
+
+        GrayCode(Variable[] variables) {
+            super(product(variables));
+            values = new int[variables.length][];
+            int openCount = 0;
+            for (int i = 0; i < variables.length; i++) {
+                Domain domain = variables[i].domain;
+                values[i] = new int[domain.size()];
+                int j = 0;
+                for (int v = domain.min(); j < values[i].length; v = domain.next(v)) {
+                    values[i][j++] = v;
+                }
+                if (values[i].length > 1) openCount++;
+            }
+            open = new int[openCount];
+            for (int i = 0, j = 0; i < variables.length; i++) {
+                if (values[i].length > 1) open[j++] = i;
+            }
+        }
+
+        private static long product(Variable[] variables) {
+            long count = 1;
+            for (Variable v : variables) {
+                count = Math.multiplyExact(count, v.domain.size());
+            }
+            return count;
+        }
+
+        long enumerate(int[] solution, SolutionListener listener, AtomicBoolean stop) {
+            if (count == 0) return 0;
+            for (int i = 0; i < values.length; i++) {
+                solution[i] = values[i][0];
+            }
+
+            //Digit a[j] of variable open[j] moves in direction o[j], f holds the focus pointers
+            int n = open.length;
+            int[] a = new int[n], o = new int[n], f = new int[n + 1];
+            for (int j = 0; j <= n; j++) {
+                f[j] = j;
+                if (j < n) o[j] = 1;
+            }
+
+            long visited = 0;
+            while (!stop.get()) {
+                visited++;
+                if (!listener.onSolution(solution)) break;
+
+                int j = f[0];
+                f[0] = 0;
+                if (j == n) break;
+                a[j] += o[j];
+                int[] digits = values[open[j]];
+                solution[open[j]] = digits[a[j]];
+                if (a[j] == 0 || a[j] == digits.length - 1) {
+                    o[j] = -o[j];
+                    f[j] = f[j + 1];
+                    f[j + 1] = j + 1;
+                }
+            }
+            return visited;
+        }
+    }
+
+    static final class RevolvingDoor extends Enumerator {
+        private final int[] positions; //Of the variables of the chain, in chain order
+        private final int lo; //Smallest value of every variable
+        private final int n; //Size of the set the combinations are taken from
+        private final boolean strict;
+
+        private RevolvingDoor(int[] positions, int lo, int n, boolean strict) {
+            super(binomial(n, positions.length));
+            this.positions = positions;
+            this.lo = lo;
+            this.n = n;
+            this.strict = strict;
+        }
+
+        static RevolvingDoor of(Increasing chain, int variableCount) {
+            int[] positions = positions(chain.vars, variableCount);
+            if (positions == null || positions.length == 0) return null;
+            int lo = chain.vars[0].domain.min(), hi = chain.vars[0].domain.max();
+            for (Variable v : chain.vars) {
+                Domain domain = v.domain;
+                if (domain.isEmpty() || domain.min() != lo || domain.max() != hi || domain.size() != hi - lo + 1) {
+                    return null;
+                }
+            }
+            //Without repetition, a non-decreasing chain is an increasing one over a range longer by k - 1
+            int k = positions.length;
+            return new RevolvingDoor(positions, lo, chain.strict ? hi - lo + 1 : hi - lo + k, chain.strict);
+        }
+
+        private static long binomial(int n, int k) {
+            if (k > n) return 0;
+            long count = 1;
+            for (int i = 0; i < Math.min(k, n - k); i++) {
+                count = Math.multiplyExact(count, n - i) / (i + 1);
+            }
+            return count;
+        }
+
+        long enumerate(int[] solution, SolutionListener listener, AtomicBoolean stop) {
+            int t = positions.length;
+            if (count == 0) return 0;
+
+            //c[1..t] is the combination of {0, ..., n - 1}, with sentinels after it
+            int[] c = new int[t + 3];
+            for (int j = 1; j <= t; j++) {
+                c[j] = j - 1;
+                set(solution, c, j);
+            }
+            c[t + 1] = n;
+            c[t + 2] = n + 1;
+
+            long visited = 0;
+            while (!stop.get()) {
+                visited++;
+                if (!listener.onSolution(solution)) break;
+                if (t == n) break;
+
+                //The only element moves by one, or with an odd number of them the first one goes up if it can
+                if (t == 1 || t % 2 == 1 && c[1] + 1 < c[2]) {
+                    if (c[1] + 1 == n) break;
+                    c[1]++;
+                    set(solution, c, 1);
+                    continue;
+                }
+                if (t % 2 == 0 && c[1] > 0) {
+                    c[1]--;
+                    set(solution, c, 1);
+                    continue;
+                }
+
+                //Find the first element that can move, alternating between trying to decrease and to increase
+                int j = 2;
+                boolean decrease = t % 2 == 1;
+                boolean moved = false;
+                while (!moved && j <= t) {
+                    if (decrease) {
+                        if (c[j] >= j) {
+                            c[j] = c[j - 1];
+                            c[j - 1] = j - 2;
+                            moved = true;
+                            break;
+                        }
+                        j++;
+                    }
+                    if (c[j] + 1 < c[j + 1]) {
+                        c[j - 1] = c[j];
+                        c[j]++;
+                        moved = true;
+                        break;
+                    }
+                    j++;
+                    decrease = true;
+                }
+                if (!moved) break;
+                set(solution, c, j - 1);
+                set(solution, c, j);
+            }
+            return visited;
+        }
+
+        //Writes the value of element j of the combination to its variable
+        private void set(int[] solution, int[] c, int j) {
+            if (j < 1 || j > positions.length) return;
+            solution[positions[j - 1]] = lo + c[j] - (strict ? 0 : j - 1);
+        }
+    }
+
+    static final class Heap extends Enumerator {
+        private final int[] positions;
+        private final int[] values; //In increasing order
+
+        private Heap(int[] positions, int[] values) {
+            super(factorial(values.length));
+            this.positions = positions;
+            this.values = values;
+        }
+
+        static Heap of(AllDifferent allDifferent, int variableCount) {
+            for (int offset : allDifferent.offsets) {
+                if (offset != 0) return null;
+            }
+            int[] positions = positions(allDifferent.vars, variableCount);
+            if (positions == null) return null;
+            if (positions.length == 0) return new Heap(positions, new int[0]);
+            //The order of the scope does not matter, in the order of the variables the first permutation is the smallest
+            Arrays.sort(positions);
+
+            Domain first = allDifferent.vars[0].domain;
+            if (first.size() != positions.length) return null;
+            int[] values = new int[first.size()];
+            int j = 0;
+            for (int v = first.min(); j < values.length; v = first.next(v)) {
+                values[j++] = v;
+            }
+            for (Variable var : allDifferent.vars) {
+                if (var.domain.size() != values.length) return null;
+                for (int v : values) {
+                    if (!var.domain.contains(v)) return null;
+                }
+            }
+            return new Heap(positions, values);
+        }
+
+        private static long factorial(int n) {
+            long count = 1;
+            for (int i = 2; i <= n; i++) {
+                count = Math.multiplyExact(count, i);
+            }
+            return count;
+        }
+
+        long enumerate(int[] solution, SolutionListener listener, AtomicBoolean stop) {
+            int n = values.length;
+            int[] a = values.clone();
+            for (int i = 0; i < n; i++) {
+                solution[positions[i]] = a[i];
+            }
+
+            //c[i] counts the swaps made at level i since the levels below it last started over
+            int[] c = new int[n];
+            long visited = 0;
+            int i = 1;
+            while (!stop.get()) {
+                visited++;
+                if (!listener.onSolution(solution)) break;
+
+                while (i < n && c[i] >= i) {
+                    c[i] = 0;
+                    i++;
+                }
+                if (i >= n) break;
+                int k = (i & 1) == 0 ? 0 : c[i];
+                int swap = a[k];
+                a[k] = a[i];
+                a[i] = swap;
+                solution[positions[k]] = a[k];
+                solution[positions[i]] = a[i];
+                c[i]++;
+                i = 1;
+            }
+            return visited;
+        }
+    }
+
+    /**
+     * Receives the solutions of a search as they are found.
+     */
+    interface SolutionListener {
+        /**
+         * @param solution The value of every variable. The array is reused for the next solution, so copy it to keep it.
+         * @return True to keep searching, false to end the search
+         */
+        boolean onSolution(int[] solution);
+    }
+
+    /**
+     * Solutions packed one after another into a growable array of longs, every value in as few bits as the
+     * domain of its variable needs when the store is created. It reads as a list of int[], each element unpacked
+     * into a new array; {@link #get(int, int[])}, {@link #value} and {@link #toString(int, String)} read without
+     * boxing or an intermediate array.
+     */
+    static final class SolutionStore extends AbstractList<int[]> {
+        private final int[] bases; //Smallest value of each variable
+        private final int[] widths; //Bits per value of each variable, 0 for a variable with a single value
+        private final int[] offsets; //Position of each variable within a solution, in bits
+        private final int stride; //Bits per solution
+        private long[] bits = new long[16];
+        private int size;
+
+        SolutionStore(Variable[] variables) {
+            bases = new int[variables.length];
+            widths = new int[variables.length];
+            offsets = new int[variables.length];
+            int offset = 0;
+            for (int i = 0; i < variables.length; i++) {
+                Domain domain = variables[i].domain;
+                if (domain.isEmpty()) continue;
+                bases[i] = domain.min();
+                widths[i] = 64 - Long.numberOfLeadingZeros((long) domain.max() - domain.min());
+                offsets[i] = offset;
+                offset += widths[i];
+            }
+            stride = offset;
+        }
+
+        @Override
+        public boolean add(int[] solution) {
+            long end = (long) (size + 1) * stride;
+            if (end + 64 > (long) bits.length << 6) {
+                long words = Math.max((end >>> 6) + 2, (long) bits.length * 2);
+                if (words > Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many solutions to store");
+                bits = Arrays.copyOf(bits, (int) words);
+            }
+
+            write(size, solution);
+            size++;
+            modCount++;
+            return true;
+        }
+
+        //Replaces the solution, for sorting
+        @Override
+        public int[] set(int index, int[] solution) {
+            int[] previous = get(index);
+            write(index, solution);
+            return previous;
+        }
+
+        private void write(int index, int[] solution) {
+            long start = (long) index * stride;
+            for (int i = 0; i < bases.length; i++) {
+                long value = (long) solution[i] - bases[i];
+                if (value < 0 || value >>> widths[i] != 0) {
+                    throw new IllegalArgumentException("Value " + solution[i] + " is outside the initial domain");
+                }
+                int width = widths[i];
+                if (width == 0) continue;
+                long position = start + offsets[i];
+                int w = (int) (position >>> 6), b = (int) (position & 63);
+                long mask = -1L >>> (64 - width);
+                bits[w] = bits[w] & ~(mask << b) | value << b;
+                if (b + width > 64) bits[w + 1] = bits[w + 1] & ~(mask >>> (64 - b)) | value >>> (64 - b);
+            }
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int[] get(int index) {
+            return get(index, new int[bases.length]);
+        }
+
+        /**
+         * Unpacks a solution into the given array
+         * @return The array
+         */
+        int[] get(int index, int[] into) {
+            Objects.checkIndex(index, size);
+            for (int i = 0; i < bases.length; i++) {
+                into[i] = value(index, i);
+            }
+            return into;
+        }
+
+        /**
+         * The value of one variable in a solution
+         */
+        int value(int index, int variable) {
+            int width = widths[variable];
+            if (width == 0) return bases[variable];
+            long position = (long) index * stride + offsets[variable];
+            int w = (int) (position >>> 6), b = (int) (position & 63);
+            long value = bits[w] >>> b;
+            if (b + width > 64) value |= bits[w + 1] << (64 - b);
+            return (int) (bases[variable] + (value & (-1L >>> (64 - width))));
+        }
+
+        /**
+         * The values of a solution in decimal, with the separator between them, e.g. "0110" for a binary string
+         * and an empty separator
+         */
+        String toString(int index, String separator) {
+            Objects.checkIndex(index, size);
+            StringBuilder builder = new StringBuilder(bases.length * (separator.length() + 1));
+            for (int i = 0; i < bases.length; i++) {
+                if (i > 0) builder.append(separator);
+                builder.append(value(index, i));
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Counters and timings of the last search. They are updated as the search goes, so a progress listener
+     * sees them live; read from another thread they are only approximate until the search is over.
+     * A parallel search or portfolio adds up the statistics of all its workers.
+     */
+    static class Statistics {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        long nodes; //Choices tried
+        long failures; //Choices that led to a conflict during propagation
+        long solutions;
+        long restarts;
+        int maxDepth; //Most choices on one branch
+        long propagations; //Calls to infer
+        long[] constraintPropagations; //Calls to infer, per constraint id
+        long propagationNanos; //Wall time spent propagating, summed over the threads of the search
+        //Wall time the threads spent on the search, summed over them: propagating, or branching for the rest.
+        //A sequential search is busy for all of its wall time, a parallel one adds up the time of its workers
+        long busyNanos;
+        long wallNanos, cpuNanos;
+        private long wallStart, cpuStart;
+
+        Statistics(int constraints) {
+            constraintPropagations = new long[constraints];
+        }
+
+        void reset() {
+            nodes = failures = solutions = restarts = propagations = 0;
+            propagationNanos = busyNanos = wallNanos = cpuNanos = 0;
+            maxDepth = 0;
+            Arrays.fill(constraintPropagations, 0);
+        }
+
+        void start() {
+            reset();
+            wallStart = System.nanoTime();
+            cpuStart = cpuTime();
+        }
+
+        /**
+         * Ends the timing of the search. Unless its busy time was counted otherwise, e.g. by adding the statistics
+         * of its workers, the search was busy on this thread for all of its wall time.
+         */
+        void finish() {
+            wallNanos = System.nanoTime() - wallStart;
+            cpuNanos += cpuTime() - cpuStart;
+            if (busyNanos == 0) busyNanos = wallNanos;
+        }
+
+        /**
+         * Wall time since the search started, also while it is still running
+         */
+        long elapsedNanos() {
+            return wallNanos != 0 ? wallNanos : System.nanoTime() - wallStart;
+        }
+
+        /**
+         * Busy time, also while a sequential search is still running
+         */
+        long busyNanos() {
+            return busyNanos != 0 ? busyNanos : elapsedNanos();
+        }
+
+        long branchingNanos() {
+            return Math.max(0, busyNanos() - propagationNanos);
+        }
+
+        long propagations(Constraint c) {
+            return constraintPropagations[c.id];
+        }
+
+        /**
+         * Adds the work of another search over the same constraints, e.g. a worker of a parallel search
+         */
+        void add(Statistics other) {
+            add(other, 0);
+        }
+
+        /**
+         * Adds the work of another search over the same constraints that started below the root of this one
+         * @param depth Number of choices made above the start of the other search
+         */
+        synchronized void add(Statistics other, int depth) {
+            nodes += other.nodes;
+            failures += other.failures;
+            solutions += other.solutions;
+            restarts += other.restarts;
+            maxDepth = Math.max(maxDepth, depth + other.maxDepth);
+            propagations += other.propagations;
+            for (int i = 0; i < constraintPropagations.length; i++) {
+                constraintPropagations[i] += other.constraintPropagations[i];
+            }
+            propagationNanos += other.propagationNanos;
+            busyNanos += other.busyNanos;
+            cpuNanos += other.cpuNanos;
+        }
+
+        private static long cpuTime() {
+            return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d nodes, %d failures, %d solutions, %d restarts, max depth %d, %d propagations, "
+                            + "%.1fms wall, %.1fms busy (%.1fms propagating), %.1fms cpu",
+                    nodes, failures, solutions, restarts, maxDepth, propagations,
+                    elapsedNanos() / 1e6, busyNanos() / 1e6, propagationNanos / 1e6, cpuNanos / 1e6);
+        }
+    }
+
+    /**
+     * Called periodically during a search, on the searching thread.
+     */
+    interface ProgressListener {
+        void onProgress(Statistics statistics);
+    }
+
+    /**
+     * How the last search ended
+     */
+    enum Outcome {
+        COMPLETE, //Explored everything, or the listener ended it
+        LIMIT_REACHED, //Ran into one of the limits with part of the search unexplored, see setLimits
+        CANCELLED //Stopped by cancel with part of the search unexplored
+    }
+
+    /**
+     * Bounds on every search of a solver, all of them unlimited unless set. A search that reaches one stops
+     * with {@link Outcome#LIMIT_REACHED} and keeps the solutions found so far, unless nothing was left to explore.
+     * To tell, a search that has handed out as many solutions as the limit allows goes on until it finds one more,
+     * which it keeps to itself. They hold for the whole search, also when it runs on several threads.
+     */
+    static class Limits {
+        long timeNanos = Long.MAX_VALUE; //Wall time from the start of the search
+        long nodes = Long.MAX_VALUE;
+        long solutions = Long.MAX_VALUE; //Solutions handed to the listener
+        long memoryBytes = Long.MAX_VALUE; //Used heap plus the off-heap arena of the solver
+
+        Limits time(long duration, TimeUnit unit) {
+            this.timeNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        Limits nodes(long nodes) {
+            this.nodes = nodes;
+            return this;
+        }
+
+        Limits solutions(long solutions) {
+            this.solutions = solutions;
+            return this;
+        }
+
+        Limits memory(long bytes) {
+            this.memoryBytes = bytes;
+            return this;
+        }
+    }
+
+    /**
+     * What the running search has used of its limits, shared by every solver working on it. The search loop
+     * reports its nodes every CHECK_INTERVAL nodes, which is also when the clock and the memory are looked at,
+     * so a search may run up to that many nodes per thread past a limit or a cancel.
+     */
+    static final class Budget {
+        static final int CHECK_INTERVAL = 16;
+
+        final Limits limits;
+        private final OffHeap memory; //Counted towards the memory limit, null if the solver has none
+        private final long deadline; //In System.nanoTime, only meaningful if the time is limited
+        private final AtomicLong nodes = new AtomicLong(), solutions = new AtomicLong();
+        private volatile Outcome stoppedBy; //Null while the search may go on
+        private volatile boolean abandoned; //Whether a solver stopped with part of its search unexplored
+
+        Budget(Limits limits, OffHeap memory) {
+            this.limits = limits;
+            this.memory = memory;
+            this.deadline = System.nanoTime() + limits.timeNanos;
+        }
+
+        /**
+         * Adds the nodes explored since the last check and checks every limit
+         * @return False if the search should stop
+         */
+        boolean check(long explored) {
+            if (stoppedBy != null) return false;
+            if (nodes.addAndGet(explored) >= limits.nodes
+                    || limits.timeNanos != Long.MAX_VALUE && System.nanoTime() - deadline >= 0
+                    || limits.memoryBytes != Long.MAX_VALUE && usedMemory() >= limits.memoryBytes) {
+                stop(Outcome.LIMIT_REACHED);
+            }
+            return stoppedBy == null;
+        }
+
+        /**
+         * Counts a solution before it is handed to the listener. One past the limit stops the search without being
+         * handed out, so a search with exactly as many solutions as the limit runs to the end and is complete.
+         * @return False if the search should stop instead of handing out the solution
+         */
+        boolean found() {
+            if (stoppedBy != null) return false;
+            if (solutions.incrementAndGet() <= limits.solutions) return true;
+            stop(Outcome.LIMIT_REACHED);
+            return false;
+        }
+
+        /**
+         * Adds nodes explored since the last check without checking, for a solver that is done with its part
+         */
+        void charge(long explored) {
+            nodes.addAndGet(explored);
+        }
+
+        /**
+         * Tells the budget that a solver stopped for it with part of its search unexplored. A search that only
+         * stopped once it had nothing left still ends as complete.
+         */
+        void abandon() {
+            abandoned = true;
+        }
+
+        //The first reason to stop is the one reported
+        synchronized void stop(Outcome reason) {
+            if (stoppedBy == null) stoppedBy = reason;
+        }
+
+        Outcome outcome() {
+            return stoppedBy != null && abandoned ? stoppedBy : Outcome.COMPLETE;
+        }
+
+        private long usedMemory() {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory() + (memory != null ? memory.allocated() : 0);
+        }
+    }
+
+    /**
+     * One way of configuring the search, used as a member of a portfolio.
+     */
+    static class Strategy {
+        final VariableSelector variableSelector;
+        final ValueOrder valueOrder;
+        final RestartPolicy restarts; //Null to never restart
+
+        Strategy(VariableSelector variableSelector, ValueOrder valueOrder, RestartPolicy restarts) {
+            this.variableSelector = variableSelector;
+            this.valueOrder = valueOrder;
+            this.restarts = restarts;
+        }
+
+        Strategy(VariableSelector variableSelector, ValueOrder valueOrder) {
+            this(variableSelector, valueOrder, null);
+        }
+
+        /**
+         * A portfolio of the given size: the default search, the default search with values tried in reverse,
+         * then restarting searches with randomized tie-breaking and value order, each with its own seed.
+         */
+        static Strategy[] portfolio(int size) {
+            Strategy[] strategies = new Strategy[size];
+            for (int i = 0; i < size; i++) {
+                if (i == 0) strategies[i] = new Strategy(new MinDomain(), new AscendingValues());
+                else if (i == 1) strategies[i] = new Strategy(new MinDomain(), new DescendingValues());
+                else strategies[i] = new Strategy(new RandomMinDomain(i), new RandomValues(i), new Luby(32));
+            }
+            return strategies;
+        }
+    }
+
+    Variable[] variables;
+    Constraint[] constraints;
+    SolutionStore solutions; //Found by findOneSolution and findAllSolutions
+    final Trail trail;
+    final OffHeap memory; //Holds the trail and the wide domains, null to keep everything on the heap
+    private boolean ownsMemory; //Whether the arena was created for this solver by copy, and is closed by release
+    int parallelism = 1; //Number of threads findAllSolutions may use
+    Strategy[] portfolio; //Strategies findOneSolution races against each other, null for a single search
+    ForkJoinPool pool; //Runs parallel searches and portfolios, null to use the shared pool of their size
+    //The shared pools, by number of threads. Their workers are daemons that end when idle, so keeping a pool is cheap
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+    RestartPolicy restarts; //Null for findOneSolution to never restart
+    NogoodStore nogoods; //What earlier runs of a restarting search have explored, null before the first restart
+    private long failuresLeft; //Before the current run restarts, 0 when not restarting
+    private boolean restarting; //Set when the current run ran out of failures, while the search unwinds
+    VariableSelector variableSelector = new MinDomain();
+    ValueOrder valueOrder = new AscendingValues();
+    AtomicBoolean stop = new AtomicBoolean(); //Set to make a running search give up as soon as possible, can be shared
+    //The explicit stack of the search, one frame per depth: the branching variable, its values in the order they
+    //are tried, how many have been, the value being explored above it and the checkpoint of the frame
+    private int[] pathVariables, pathValues;
+    private int[][] valueBuffers;
+    private int[] valueCounts, nextValues, checkpoints;
+    private int top = -1; //Depth of the top frame, -1 while no search is on the stack
+    private boolean expand; //Whether the node above the top frame is new and still has to be branched on
+    private long nodesLeft; //Before the search on the stack pauses
+    private int[] solution; //Reused for every solution handed to a listener
+    long solutionCount; //Solutions found by the last search
+    final Statistics statistics;
+    SizeIndex sizes; //The variables by domain size, kept up to date while the variable selector uses it, else null
+    private VariableSelector tracked; //The selector sizes and reportReductions were set up for
+    private boolean reportReductions; //Whether the variable selector hears about every domain change
+    Symmetry[] symmetries = new Symmetry[0]; //Every symmetry of the model except the identity
+    private int[] image; //Reused for the symmetric images of a solution
+    ProgressListener progressListener;
+    long progressInterval; //Nodes between two progress reports
+    Limits limits = new Limits();
+    private volatile Budget budget; //Of the running search, shared with the copies working on it, else null
+    private int nodesSinceCheck; //Explored since this solver last reported to the budget
+    Outcome outcome = Outcome.COMPLETE; //Of the last search
+
+    //Ids of the constraints waiting to infer, as a ring buffer in which each constraint appears at most once
+    private final int[] queue;
+    private int queueHead, queueSize;
+    private Constraint running; //Constraint currently inferring, if any
+
+    /**
+     * Constructs a solver.
+     * @param variables The variables in the problem
+     * @param constraints The constraints applied to the variables
+     */
+    public Solver(Variable[] variables, Constraint[] constraints) {
+        this(variables, constraints, null);
+    }
+
+    /**
+     * Constructs a solver that keeps its search state off the heap, for models so large that the collector would
+     * otherwise spend its time on it. The trail lives in the arena, and so do the words of every domain wider than
+     * 64 values, which are moved there. Narrower domains are a single long already and stay as they are.
+     * The arena must stay open while this solver or a copy of it is in use, closing it afterwards frees the memory.
+     * @param memory The arena to allocate in, or null to keep everything on the heap
+     */
+    public Solver(Variable[] variables, Constraint[] constraints, OffHeap memory) {
+        this.variables = variables;
+        this.constraints = constraints;
+        this.memory = memory;
+        this.trail = new Trail(memory);
+        this.queue = new int[Integer.highestOneBit(Math.max(1, constraints.length - 1)) << 1];
+        this.statistics = new Statistics(constraints.length);
+        for (int i = 0; i < constraints.length; i++) {
+            constraints[i].id = i;
+        }
+
+        for (int i = 0; i < variables.length; i++) {
+            variables[i].index = i;
+            variables[i].solver = this;
+            if (memory != null && variables[i].domain instanceof BitSetDomain) {
+                BitSetDomain domain = (BitSetDomain) variables[i].domain;
+                DirectDomain direct = new DirectDomain(domain.base, domain.wordCount << 6, memory);
+                direct.copyFrom(domain);
+                variables[i].domain = direct;
+            }
+            variables[i].domain.trail = trail;
+            variables[i].domain.owner = trail.register(variables[i].domain);
+        }
+        for (Variable v : variables) {
+            v.domain.index = v.index;
+        }
+        for (Constraint c : constraints) {
+            c.attach(this);
+        }
+
+        //Index each variable to the constraints watching it
+        int[] watchCount = new int[variables.length];
+        for (Constraint c : constraints) {
+            for (Variable v : c.scope) {
+                watchCount[v.index]++;
+            }
+        }
+        for (Variable v : variables) {
+            v.watchers = new Constraint[watchCount[v.index]];
+        }
+        for (Constraint c : constraints) {
+            for (Variable v : c.scope) {
+                v.watchers[--watchCount[v.index]] = c;
+            }
+        }
+
+        solutions = new SolutionStore(variables);
+    }
+
+    /**
+     * Searches for one solution that satisfies the constraints.
+     * @return The solution if it exists, else null
+     */
+    int[] findOneSolution() {
+        boolean started = begin();
+        try {
+            if (portfolio != null) {
+                int[] solution = race();
+                if (solution != null) solutions.add(solution);
+            } else if (restarts != null) {
+                searchWithRestarts(solution -> {
+                    solutions.add(solution);
+                    return false;
+                });
+            } else {
+                search(solution -> {
+                    solutions.add(solution);
+                    return false;
+                });
+            }
+        } finally {
+            end(started);
+        }
+
+        return !solutions.isEmpty() ? solutions.get(0) : null;
+    }
+
+    /**
+     * Searches for every solution that satisfies the constraints.
+     * When searching in parallel the solutions are not in any particular order, and for a model that an
+     * {@link Enumerator} recognizes they are in the order of its generator.
+     * @return The solutions, packed into a {@link SolutionStore}
+     */
+    List<int[]> findAllSolutions() {
+        forEachSolution(solution -> {
+            solutions.add(solution);
+            return true;
+        });
+
+        return solutions;
+    }
+
+    /**
+     * Counts the solutions that satisfy the constraints, without ever building one.
+     * @return The number of solutions
+     */
+    long countSolutions() {
+        forEachSolution(null);
+
+        return solutionCount;
+    }
+
+    /**
+     * Hands every solution to the listener as soon as it is found, without storing any of them.
+     * When searching in parallel the listener is called from several threads, but never concurrently.
+     * @param listener Receives the solutions, and can end the search early. Null only counts them.
+     */
+    void forEachSolution(SolutionListener listener) {
+        boolean started = begin();
+        try {
+            if (parallelism > 1) {
+                searchInParallel(listener);
+            } else {
+                search(listener);
+            }
+        } finally {
+            end(started);
+        }
+    }
+
+    /**
+     * Pulls the solutions one at a time, on the calling thread. Every call searches only until the next solution,
+     * so the caller can stop whenever it has seen enough. The search stays open until the solutions run out or the
+     * iterator is closed, see {@link #start}.
+     */
+    SolutionIterator iterator() {
+        return new SolutionIterator(this);
+    }
+
+    /**
+     * Statistics of the last search, or of the running one
+     */
+    Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Reports the statistics of the running search every so many nodes. In a parallel search or portfolio
+     * every worker reports on its own part of the search, from its own thread.
+     * @param listener Receives the reports, null to stop reporting
+     * @param everyNodes Number of nodes between two reports
+     */
+    void setProgressListener(ProgressListener listener, long everyNodes) {
+        this.progressListener = listener;
+        this.progressInterval = Math.max(1, everyNodes);
+    }
+
+    /**
+     * Tells the solver about the symmetries of the model. Only the lexicographically smallest solution of every
+     * set of symmetric solutions is then reported, and counting weights it by the size of that set, so counts
+     * stay exact. The model may prune with symmetry breaking constraints, as long as they keep those smallest
+     * solutions, e.g. {@link LexLessEq} for a symmetry that only permutes variables.
+     * @param symmetries The whole symmetry group except the identity, not just generators
+     */
+    void setSymmetries(Symmetry... symmetries) {
+        this.symmetries = symmetries;
+    }
+
+    /**
+     * Lets findAllSolutions split the search over several threads, each over a copy of the constraints.
+     * @param threads The number of threads, 1 for a sequential search
+     */
+    void setParallelism(int threads) {
+        this.parallelism = Math.max(1, threads);
+    }
+
+    /**
+     * Lets findOneSolution race differently configured searches on their own threads, keeping whichever
+     * solution is found first. Every racer searches a copy of the constraints.
+     * @param strategies The searches to race, fewer than two disables racing
+     */
+    void setPortfolio(Strategy... strategies) {
+        this.portfolio = strategies.length > 1 ? strategies : null;
+    }
+
+    /**
+     * Runs the parallel searches and portfolios of this solver on the given pool, instead of on the pool shared by
+     * every solver with the same number of threads. The caller keeps ownership of the pool.
+     * @param pool The pool to use, null to go back to the shared pools
+     */
+    void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    //The pool to run the given number of threads on
+    private ForkJoinPool pool(int threads) {
+        return pool != null ? pool : POOLS.computeIfAbsent(threads, ForkJoinPool::new);
+    }
+
+    /**
+     * Bounds every following search, see {@link Limits}
+     */
+    void setLimits(Limits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Stops the running search from any thread, soon after. The search ends with {@link Outcome#CANCELLED} and
+     * keeps the solutions it found. Does nothing if no search is running, a search started later is not affected.
+     */
+    void cancel() {
+        Budget budget = this.budget;
+        if (budget != null) budget.stop(Outcome.CANCELLED);
+    }
+
+    /**
+     * How the last search ended. The solutions it found are kept either way, so a search that reached a limit still
+     * returns the best it could do in time.
+     */
+    Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Searches with the selector, value order and restarts of the strategy. The solver works on copies of the
+     * selector and value order, see {@link VariableSelector#copy()}, so a strategy can be given to any number of
+     * solvers, e.g. to the racers of every findOneSolution of a portfolio.
+     */
+    void setStrategy(Strategy strategy) {
+        this.variableSelector = strategy.variableSelector.copy();
+        //A heuristic that picks both the variable and the value keeps doing both
+        this.valueOrder = strategy.valueOrder == strategy.variableSelector
+                ? (ValueOrder) variableSelector : strategy.valueOrder.copy();
+        this.restarts = strategy.restarts;
+    }
+
+    private int[] race() {
+        statistics.start();
+        List<Solver> racers = new ArrayList<>(portfolio.length);
+        ExecutorCompletionService<int[]> race = new ExecutorCompletionService<>(pool(portfolio.length));
+        List<Future<int[]>> futures = new ArrayList<>(portfolio.length);
+        for (Strategy strategy : portfolio) {
+            Solver racer = copy();
+            racer.setStrategy(strategy);
+            racers.add(racer);
+            //A racer only finishes early because another one won, and that result is never read
+            futures.add(race.submit(() -> {
+                try {
+                    return racer.findOneSolution();
+                } finally {
+                    statistics.add(racer.statistics);
+                    racer.release();
+                }
+            }));
+        }
+
+        //The first search to finish decides, whether it found a solution or proved there is none
+        boolean interrupted = false;
+        try {
+            ExecutionException failure = null;
+            for (int finished = 0; finished < futures.size(); finished++) {
+                try {
+                    return race.take().get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                }
+            }
+            throw new IllegalStateException("Every search in the portfolio failed", failure.getCause());
+        } catch (InterruptedException e) {
+            interrupted = true;
+            return null;
+        } finally {
+            for (Solver racer : racers) {
+                racer.stop.set(true);
+            }
+            //The losers stop at their next check and add their work, which is only complete once they all have
+            for (Future<int[]> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        break;
+                    }
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            statistics.finish();
+        }
+    }
+
+    /**
+     * Undoes every change made to the domains since the solver was created, such as restrictions made before
+     * a search, and forgets the solutions found. The constraints and the index of their variables are kept,
+     * so a model can be built once and then searched any number of times with different restrictions.
+     */
+    void reset() {
+        clearQueue();
+        trail.restore(0);
+        nogoods = null;
+        solutions = new SolutionStore(variables);
+        solutionCount = 0;
+        stop.set(false);
+    }
+
+    /**
+     * Creates an independent solver over copies of the variables, in their current state, and of the constraints.
+     * The copy uses copies of the variable selector and value order, see {@link VariableSelector#copy()}.
+     * A solver off the heap gives the copy an arena of its own, which {@link #release} closes.
+     */
+    Solver copy() {
+        Variable[] copies = new Variable[variables.length];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = new Variable(variables[i].domain.copy());
+        }
+        Constraint[] constraintCopies = new Constraint[constraints.length];
+        for (int i = 0; i < constraintCopies.length; i++) {
+            constraintCopies[i] = constraints[i].copy(copies);
+        }
+        Solver copy = new Solver(copies, constraintCopies, memory == null ? null : new OffHeap());
+        copy.ownsMemory = memory != null;
+        copy.variableSelector = variableSelector.copy();
+        //A heuristic that picks both the variable and the value keeps doing both in the copy
+        copy.valueOrder = valueOrder == variableSelector ? (ValueOrder) copy.variableSelector : valueOrder.copy();
+        copy.progressListener = progressListener;
+        copy.progressInterval = progressInterval;
+        copy.symmetries = symmetries;
+        copy.restarts = restarts;
+        copy.pool = pool;
+        copy.limits = limits;
+        copy.budget = budget;
+        return copy;
+    }
+
+    /**
+     * Frees the arena of a copy, which must not be used afterwards. Does nothing for a solver that was given its
+     * arena, the caller closes that one.
+     */
+    void release() {
+        if (ownsMemory) memory.close();
+    }
+
+    private void searchInParallel(SolutionListener listener) {
+        solutionCount = 0;
+        statistics.start();
+        //A well known shape is listed faster on one thread than any search on all of them
+        Enumerator enumerator = Enumerator.of(this);
+        if (enumerator != null) {
+            enumerate(enumerator, listener);
+            statistics.finish();
+            return;
+        }
+        Solver root = copy();
+        long start = System.nanoTime();
+        for (Constraint c : root.constraints) {
+            root.enqueue(c);
+        }
+        boolean consistent = root.propagate() && root.noEmptyDomain();
+        root.statistics.busyNanos = System.nanoTime() - start;
+        if (!consistent) {
+            statistics.add(root.statistics);
+            root.release();
+            statistics.finish();
+            return;
+        }
+
+        //Every task shares the stop flag of the root, so one listener call can end the whole search
+        AtomicBoolean stop = root.stop;
+        SolutionListener serialized = listener == null ? null : solution -> {
+            synchronized (stop) {
+                if (stop.get()) return false;
+                if (!listener.onSolution(solution)) stop.set(true);
+                return !stop.get();
+            }
+        };
+
+        try {
+            solutionCount = pool(parallelism).invoke(new SearchTask(root, 0, serialized, statistics));
+        } finally {
+            statistics.finish();
+        }
+    }
+
+    /**
+     * Explores the subtree below the state of its own solver. Near the root it forks a task for every value
+     * of the branching variable, so that idle workers can steal them; deeper down it searches sequentially.
+     * Results in the number of solutions in the subtree.
+     */
+    @SuppressWarnings("serial") //Tasks are never serialized, and neither is the solver they hold
+    static class SearchTask extends RecursiveTask<Long> {
+        static final int MIN_SPLIT_DEPTH = 2; //Always split this deep, to get enough tasks to go around
+        static final int MAX_SPLIT_DEPTH = 8; //Never split deeper, subtrees get too small to be worth a copy
+
+        final Solver solver;
+        final int depth; //Choices made above the state of the solver
+        final SolutionListener listener;
+        final Statistics total; //Statistics of the whole search, the task adds its own when it is done
+
+        SearchTask(Solver solver, int depth, SolutionListener listener, Statistics total) {
+            this.solver = solver;
+            this.depth = depth;
+            this.listener = listener;
+            this.total = total;
+        }
+
+        @Override
+        protected Long compute() {
+            try {
+                return explore();
+            } finally {
+                solver.settle();
+                total.add(solver.statistics, depth);
+                solver.release();
+            }
+        }
+
+        private long explore() {
+            Budget budget = solver.budget;
+            if (solver.stop.get()) return 0L;
+            if (budget != null && !budget.check(0)) {
+                budget.abandon();
+                return 0L;
+            }
+
+            long start = System.nanoTime();
+            boolean split = depth < MIN_SPLIT_DEPTH || (depth < MAX_SPLIT_DEPTH && getSurplusQueuedTaskCount() <= 2);
+            if (!split) {
+                solver.statistics.start();
+                solver.solutionCount = 0;
+                solver.solve(listener);
+                solver.statistics.finish();
+                return solver.solutionCount;
+            }
+
+            solver.track();
+            int curVarIndex = solver.variableSelector.select(solver);
+            if (curVarIndex == -1) {
+                long weight = solver.orbitWeight();
+                if (weight == 0 || !solver.admit(budget)) return 0L;
+                solver.statistics.solutions++;
+                //A listener that ends the search sets the shared stop flag, see searchInParallel
+                if (listener != null) listener.onSolution(solver.collapseSolution());
+                return weight;
+            }
+
+            Variable cur = solver.variables[curVarIndex];
+            int[] values = new int[cur.domain.size()];
+            int count = solver.valueOrder.order(cur, values);
+            List<SearchTask> subtasks = new ArrayList<>(count);
+            solver.statistics.maxDepth = 1; //The choice made here, the subtasks add the depth below it
+            for (int i = 0; i < count; i++) {
+                if (!solver.countNode(budget)) break; //The subtasks made so far still run, and stop right away
+                int checkpoint = solver.trail.checkpoint();
+                if (cur.assign(values[i]) && solver.propagate()) {
+                    Solver child = solver.copy();
+                    child.stop = solver.stop;
+                    subtasks.add(new SearchTask(child, depth + 1, listener, total));
+                } else {
+                    solver.statistics.failures++;
+                }
+                solver.trail.restore(checkpoint);
+            }
+
+            //The nodes of this task would otherwise only count once every subtask is done. Its busy time ends here,
+            //waiting for the subtasks is not work
+            solver.statistics.busyNanos += System.nanoTime() - start;
+            solver.settle();
+            long solutions = 0;
+            for (SearchTask subtask : invokeAll(subtasks)) {
+                solutions += subtask.join();
+            }
+            return solutions;
+        }
+    }
+
+    /**
+     * Runs the search from the current state, and afterwards puts every domain back the way it was.
+     * @param listener Receives the solutions, null to only count them
+     */
+    void search(SolutionListener listener) {
+        boolean started = begin();
+        solutionCount = 0;
+        statistics.start();
+        try {
+            Enumerator enumerator = Enumerator.of(this);
+            if (enumerator != null) enumerate(enumerator, listener);
+            else run(listener);
+        } finally {
+            statistics.finish();
+            end(started);
+        }
+    }
+
+    //Starts a budget on the limits, unless the search is part of a larger one that already has a budget
+    private boolean begin() {
+        if (budget != null) return false;
+        budget = new Budget(limits, memory);
+        nodesSinceCheck = 0;
+        return true;
+    }
+
+    //Ends the budget if begin started it
+    private void end(boolean started) {
+        settle();
+        if (!started) return;
+        outcome = budget.outcome();
+        budget = null;
+    }
+
+    //Counts a node that is about to be explored, reporting progress and checking the budget every CHECK_INTERVAL nodes.
+    //Returns false if the budget ran out, in which case the node is left unexplored
+    private boolean countNode(Budget budget) {
+        if (budget != null && ++nodesSinceCheck == Budget.CHECK_INTERVAL) {
+            nodesSinceCheck = 0;
+            if (!budget.check(Budget.CHECK_INTERVAL)) {
+                budget.abandon();
+                return false;
+            }
+        }
+        statistics.nodes++;
+        if (progressListener != null && statistics.nodes % progressInterval == 0) {
+            progressListener.onProgress(statistics);
+        }
+        return true;
+    }
+
+    //Counts a solution against the budget before it is reported. Returns false if the search should end without it
+    private boolean admit(Budget budget) {
+        if (budget == null || budget.found()) return true;
+        budget.abandon();
+        return false;
+    }
+
+    //Charges the budget with the nodes explored since the last check
+    private void settle() {
+        Budget budget = this.budget;
+        if (budget != null) budget.charge(nodesSinceCheck);
+        nodesSinceCheck = 0;
+    }
+
+    /**
+     * Starts a search from the current state that explores nothing until it is resumed
+     * @param listener Receives the solutions, null to only count them in solutionCount
+     */
+    Search start(SolutionListener listener) {
+        return start(new Node(new int[0], new int[0]), listener);
+    }
+
+    /**
+     * Starts a search of the subtree of a node, which may come from a search by another solver of the same model
+     * @param listener Receives the solutions, null to only count them in solutionCount
+     */
+    Search start(Node node, SolutionListener listener) {
+        if (budget != null || top != -1 || expand) throw new IllegalStateException("Another search is open");
+        return new Search(this, node, listener);
+    }
+
+    //Lists the solutions of a model with a well known shape, or only counts them if there is no listener
+    private void enumerate(Enumerator enumerator, SolutionListener listener) {
+        Budget budget = this.budget;
+        if (listener == null) {
+            solutionCount = enumerator.count;
+            if (budget != null && solutionCount > budget.limits.solutions) {
+                solutionCount = budget.limits.solutions;
+                budget.stop(Outcome.LIMIT_REACHED);
+                budget.abandon();
+            }
+        } else {
+            if (solution == null) solution = new int[variables.length];
+            SolutionListener bounded = listener;
+            long[] handedOut = new long[1];
+            if (budget != null) {
+                //Generated solutions are not nodes, but the clock still runs while they are handed out
+                bounded = values -> {
+                    if (!budget.found()) return false;
+                    handedOut[0]++;
+                    if (!listener.onSolution(values)) return false;
+                    return handedOut[0] % Budget.CHECK_INTERVAL != 0 || budget.check(0);
+                };
+            }
+            long visited = enumerator.enumerate(solution, bounded, stop);
+            solutionCount = budget != null ? handedOut[0] : visited;
+            //The solution one past the limit is generated but not handed out, so it is still unexplored
+            if (budget != null && handedOut[0] < enumerator.count) budget.abandon();
+        }
+        statistics.solutions += solutionCount;
+    }
+
+    /**
+     * Like {@link #search}, but every run that exceeds its failure budget starts over from the root.
+     * Before it does, the subtrees it fully explored become nogoods, so no run repeats the work of an earlier one
+     * and the search stays complete. Only meant for searches that stop at the first solution, since solutions
+     * found before a restart could be found again.
+     */
+    private void searchWithRestarts(SolutionListener listener) {
+        solutionCount = 0;
+        statistics.start();
+        if (nogoods == null) nogoods = new NogoodStore(variables);
+        try {
+            for (int r = 0; ; r++) {
+                failuresLeft = Math.max(1, restarts.failures(r));
+                restarting = false;
+                nogoods.restart();
+                run(listener);
+                if (!restarting) break;
+                statistics.restarts++;
+            }
+        } finally {
+            failuresLeft = 0;
+            restarting = false;
+            statistics.finish();
+        }
+    }
+
+    private void run(SolutionListener listener) {
+        int root = trail.checkpoint();
+        for (Constraint c : constraints) {
+            enqueue(c);
+        }
+        if (propagate() && noEmptyDomain()) {
+            solve(listener);
+        }
+        trail.restore(root);
+    }
+
+    private boolean noEmptyDomain() {
+        for (Variable v : variables) {
+            if (v.domain.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Explores the subtree below the current state
+     * @return False if the search should end
+     */
+    boolean solve(SolutionListener listener) {
+        nodesLeft = Long.MAX_VALUE;
+        expand = true;
+        return explore(listener);
+    }
+
+    /**
+     * Continues the search on the stack until it is exhausted, it ends or the node budget runs out, starting at the
+     * current state if the stack is empty and a node is waiting to be expanded. Never recurses, so the depth of the
+     * search is only limited by the number of variables. Pauses with the top frame between two of its values.
+     * @return False if the search should end, in which case the stack is emptied
+     */
+    private boolean explore(SolutionListener listener) {
+        if (valueBuffers == null) {
+            valueBuffers = new int[variables.length + 1][];
+            valueCounts = new int[variables.length + 1];
+            nextValues = new int[variables.length + 1];
+            checkpoints = new int[variables.length + 1];
+            pathVariables = new int[variables.length + 1];
+            pathValues = new int[variables.length + 1];
+        }
+        track();
+        int[] valueCounts = this.valueCounts, nextValues = this.nextValues, checkpoints = this.checkpoints;
+        int[] pathVariables = this.pathVariables, pathValues = this.pathValues;
+        int top = this.top;
+        long nodesLeft = this.nodesLeft;
+        Budget budget = this.budget;
+        try {
+            while (true) {
+                if (expand) {
+                    expand = false;
+                    int curVarIndex = variableSelector.select(this);
+                    if (curVarIndex != -1) {
+                        push(++top, variables[curVarIndex]);
+                    } else {
+                        //solution found
+                        long weight = orbitWeight();
+                        if (weight != 0) {
+                            if (!admit(budget)) {
+                                top = unwind(top);
+                                return false;
+                            }
+                            solutionCount += weight;
+                            statistics.solutions++;
+                            if (listener != null && !listener.onSolution(collapseSolution())) {
+                                top = unwind(top);
+                                return false;
+                            }
+                        }
+                        if (top == -1) return true;
+                        trail.restore(checkpoints[top]);
+                    }
+                }
+
+                if (top == -1) return true;
+                if (nextValues[top] == valueCounts[top]) {
+                    //Every value of the top frame is done, which also finishes the value below it
+                    top--;
+                    if (top != -1) trail.restore(checkpoints[top]);
+                    continue;
+                }
+                if (stop.get()) {
+                    top = unwind(top);
+                    return false;
+                }
+                if (nodesLeft == 0) return true;
+                nodesLeft--;
+                if (!countNode(budget)) {
+                    top = unwind(top);
+                    return false;
+                }
+
+                Variable cur = variables[pathVariables[top]];
+                int value = valueBuffers[top][nextValues[top]++];
+                trail.checkpoint(); //Back at the state of the frame, so this is the checkpoint of the frame again
+
+                //Collapse the domain of the variable to the choice and infer from there
+                variableSelector.deciding(this, cur, value);
+                boolean consistent = cur.assign(value) && propagate();
+                variableSelector.decided(this, cur, value, consistent);
+                if (consistent) {
+                    pathValues[top] = value;
+                    expand = true;
+                    continue;
+                }
+
+                statistics.failures++;
+                trail.restore(checkpoints[top]);
+                if (failuresLeft > 0 && --failuresLeft == 0) {
+                    //The values tried at the top are done, below it the value being explored is not
+                    restarting = true;
+                    for (int d = top; d >= 0; d--) {
+                        if (d < top) trail.restore(checkpoints[d]);
+                        recordNogoods(d, d == top ? nextValues[d] : nextValues[d] - 1);
+                    }
+                    top = -1;
+                    return false;
+                }
+            }
+        } finally {
+            this.top = top;
+            this.nodesLeft = nodesLeft;
+        }
+    }
+
+    //Keeps up the size index and the reports of domain changes only if the variable selector uses them. The index is
+    //built from the domains as they are, so a selector can be switched between searches
+    private void track() {
+        VariableSelector selector = variableSelector;
+        if (selector == tracked) return;
+        tracked = selector;
+        reportReductions = selector.usesReductions();
+        boolean indexed = selector.usesSizes(this);
+        if (indexed == (sizes != null)) return;
+        sizes = indexed ? new SizeIndex(variables) : null;
+        for (Variable v : variables) {
+            v.domain.sizes = sizes;
+        }
+    }
+
+    //Adds the frame at the given depth, for branching on the variable
+    private void push(int depth, Variable cur) {
+        int size = cur.domain.size();
+        if (valueBuffers[depth] == null || valueBuffers[depth].length < size) valueBuffers[depth] = new int[size];
+        valueCounts[depth] = valueOrder.order(cur, valueBuffers[depth]);
+        nextValues[depth] = 0;
+        pathVariables[depth] = cur.index;
+        checkpoints[depth] = trail.checkpoint();
+        if (depth + 1 > statistics.maxDepth) statistics.maxDepth = depth + 1;
+    }
+
+    //Empties the stack of the given top, going back to the state in which its first frame was added
+    private int unwind(int top) {
+        if (top != -1) trail.restore(checkpoints[0]);
+        expand = false;
+        return -1;
+    }
+
+    //Records that below the assignments leading to this depth, the first values of the branching variable fail
+    private void recordNogoods(int depth, int done) {
+        for (int k = 0; k < done; k++) {
+            int[] vars = Arrays.copyOf(pathVariables, depth + 1);
+            int[] vals = Arrays.copyOf(pathValues, depth + 1);
+            vals[depth] = valueBuffers[depth][k];
+            nogoods.add(vars, vals);
+        }
+    }
+
+    /**
+     * Runs the queued constraints until none of them has anything left to infer
+     * @return False if a constraint failed, in which case the queue is emptied
+     */
+    boolean propagate() {
+        long start = System.nanoTime();
+        try {
+            return runQueue();
+        } finally {
+            statistics.propagationNanos += System.nanoTime() - start;
+        }
+    }
+
+    private boolean runQueue() {
+        while (true) {
+            if (queueSize == 0) {
+                //The nogoods go last, once the constraints have nothing left to do
+                if (nogoods == null || nogoods.idle()) return true;
+                if (!nogoods.propagate()) {
+                    clearQueue();
+                    return false;
+                }
+                continue;
+            }
+
+            Constraint c = constraints[queue[queueHead]];
+            queueHead = (queueHead + 1) & (queue.length - 1);
+            queueSize--;
+            c.queued = false;
+
+            statistics.propagations++;
+            statistics.constraintPropagations[c.id]++;
+            running = c;
+            boolean consistent = c.infer();
+            running = null;
+            if (!consistent) {
+                variableSelector.failed(this, c);
+                clearQueue();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Wakes up the constraints watching a variable for the given events
+     */
+    void schedule(Variable v, int event) {
+        for (Constraint c : v.watchers) {
+            if ((c.events() & event) != 0 && (c != running || !c.idempotent())) enqueue(c);
+        }
+    }
+
+    private void enqueue(Constraint c) {
+        if (c.queued) return;
+        c.queued = true;
+        queue[(queueHead + queueSize) & (queue.length - 1)] = c.id;
+        queueSize++;
+    }
+
+    private void clearQueue() {
+        while (queueSize > 0) {
+            constraints[queue[queueHead]].queued = false;
+            queueHead = (queueHead + 1) & (queue.length - 1);
+            queueSize--;
+        }
+    }
+
+
+    /**
+     * How many solutions the current one stands for: 0 if a symmetric solution is lexicographically smaller,
+     * else the size of its orbit, which is the size of the group over the number of symmetries that fix it.
+     */
+    long orbitWeight() {
+        if (symmetries.length == 0) return 1;
+
+        int[] solution = collapseSolution();
+        if (image == null) image = new int[variables.length];
+        int fixedBy = 1;
+        for (Symmetry symmetry : symmetries) {
+            symmetry.map(solution, image);
+            int cmp = Arrays.compare(image, solution);
+            if (cmp < 0) return 0;
+            if (cmp == 0) fixedBy++;
+        }
+        return (symmetries.length + 1) / fixedBy;
+    }
+
+    //Assuming all variables are assigned, writes their values to the reused solution array
+    int[] collapseSolution() {
+        if (solution == null) solution = new int[variables.length];
+        for (int i = 0; i < variables.length; i++) {
+            solution[i] = variables[i].value();
+        }
+        return solution;
+    }
+
+    /**
+     * A subtree of the search: the decisions that lead to it from the root, each the index of a variable and the
+     * value assigned to it. Only plain numbers, so that any solver of the same model can search it, also one in
+     * another process. See {@link Search#split}.
+     */
+    static class Node {
+        final int[] variables;
+        final int[] values;
+
+        public Node(int[] variables, int[] values) {
+            this.variables = variables;
+            this.values = values;
+        }
+
+        int depth() {
+            return variables.length;
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner joiner = new StringJoiner(", ", "[", "]");
+            for (int i = 0; i < variables.length; i++) {
+                joiner.add("x" + variables[i] + "=" + values[i]);
+            }
+            return joiner.toString();
+        }
+    }
+
+    /**
+     * A search that only explores nodes when it is resumed, so it can be paused after a budget of nodes and resumed
+     * later, also on another thread. The subtrees it has not started yet can be split off as {@link Node}s and
+     * searched elsewhere. While a search is open its solver holds the state of the node it paused at, and must not
+     * search otherwise. Finishing or closing the search puts the domains back the way they were.
+     */
+    static final class Search implements AutoCloseable {
+        private final Solver solver;
+        private final Node start;
+        private final SolutionListener listener;
+        private final int root; //Checkpoint from before the search
+        private boolean done;
+
+        private Search(Solver solver, Node start, SolutionListener listener) {
+            this.solver = solver;
+            this.start = start;
+            this.listener = listener;
+            solver.begin(); //Always starts one, start made sure no other search is open
+            solver.solutionCount = 0;
+            solver.statistics.start();
+            long busyStart = System.nanoTime();
+            this.root = solver.trail.checkpoint();
+
+            for (Constraint c : solver.constraints) {
+                solver.enqueue(c);
+            }
+            boolean consistent = solver.propagate();
+            for (int i = 0; consistent && i < start.variables.length; i++) {
+                consistent = solver.variables[start.variables[i]].assign(start.values[i]) && solver.propagate();
+            }
+            solver.statistics.busyNanos = System.nanoTime() - busyStart;
+            if (consistent && solver.noEmptyDomain()) {
+                solver.expand = true;
+            } else {
+                finish();
+            }
+        }
+
+        /**
+         * Explores at most the given number of nodes
+         * @return True if the search is done, because it explored everything or was ended by the listener or the
+         * stop flag of the solver
+         */
+        boolean resume(long nodes) {
+            if (done) return true;
+            //Busy while resumed, the pauses in between are not part of the search
+            long start = System.nanoTime();
+            solver.nodesLeft = nodes;
+            boolean paused = solver.explore(listener) && solver.top != -1;
+            solver.statistics.busyNanos += System.nanoTime() - start;
+            if (!paused) finish();
+            return done;
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Takes the subtrees that the search has not started yet off its stack, leaving it only the subtrees it is
+         * in. Searching the nodes as well as the rest of this search covers exactly what was left of it.
+         * @return The subtrees, shallowest first
+         */
+        List<Node> split() {
+            List<Node> nodes = new ArrayList<>();
+            if (done) return nodes;
+            int prefix = start.depth();
+            for (int depth = 0; depth <= solver.top; depth++) {
+                for (int i = solver.nextValues[depth]; i < solver.valueCounts[depth]; i++) {
+                    int[] variables = Arrays.copyOf(start.variables, prefix + depth + 1);
+                    int[] values = Arrays.copyOf(start.values, prefix + depth + 1);
+                    System.arraycopy(solver.pathVariables, 0, variables, prefix, depth + 1);
+                    System.arraycopy(solver.pathValues, 0, values, prefix, depth);
+                    values[prefix + depth] = solver.valueBuffers[depth][i];
+                    nodes.add(new Node(variables, values));
+                }
+                solver.valueCounts[depth] = solver.nextValues[depth];
+            }
+            return nodes;
+        }
+
+        /**
+         * Ends the search, if it is not done already
+         */
+        @Override
+        public void close() {
+            if (!done) finish();
+        }
+
+        private void finish() {
+            solver.top = solver.unwind(solver.top);
+            solver.trail.restore(root);
+            solver.statistics.finish();
+            solver.end(true);
+            done = true;
+        }
+    }
+
+    /**
+     * The solutions of a search that is resumed whenever the next one is asked for. Each solution is a new array.
+     */
+    static final class SolutionIterator implements Iterator<int[]>, AutoCloseable {
+        static final int NODES = 64; //Explored at a time, few enough to hand out a solution soon after it is found
+
+        private final Deque<int[]> found = new ArrayDeque<>(); //Found by the last resume, and not handed out yet
+        private final Search search;
+
+        private SolutionIterator(Solver solver) {
+            search = solver.start(solution -> found.add(solution.clone()));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (found.isEmpty() && !search.isDone()) {
+                search.resume(NODES);
+            }
+            return !found.isEmpty();
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return found.poll();
+        }
+
+        /**
+         * Ends the search without the solutions that were not asked for
+         */
+        @Override
+        public void close() {
+            search.close();
+            found.clear();
+        }
+    }
+}
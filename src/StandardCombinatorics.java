@@ -1,37 +1,30 @@
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class StandardCombinatorics {
     /**
      * Returns a list of all binary strings of length n
      */
     public static List<String> getBinaryStrings(int n) {
-        // Initialize lists for variables and constraints
-        List<Solver.Variable> variables = new ArrayList<>();
-        List<Solver.Constraint> constraints = new ArrayList<>();
-
-
-        // TODO: add your constraints
-
-        // Convert to arrays
+        // Every string is a solution, so there are no constraints
         Solver.Variable[] variablesArray = new Solver.Variable[n];
         for (int i = 0; i < n; i++) {
             variablesArray[i] = new Solver.Variable(List.of(0,1));
         }
-//        variablesArray = variables.toArray(variablesArray);
-        Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
-//        constraintsArray = constraints.toArray(constraintsArray);
+        Solver.Constraint[] constraintsArray = new Solver.Constraint[0];
 
-        // Use solver
+        // Use solver, building each string straight from the solution instead of keeping the solutions around
         Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
-        System.out.println("result:");
-//        for (int[] res : result) {
-//            System.out.println(Arrays.toString(res));
-//        }
-        System.out.println("---");
-        // TODO: use result to construct answer
-        return result.stream().map(Arrays::toString).map(x -> x.replaceAll("\\[|]|,|\\s", "")).collect(Collectors.toList());
+        List<String> result = new ArrayList<>();
+        char[] chars = new char[n];
+        solver.forEachSolution(solution -> {
+            for (int i = 0; i < n; i++) {
+                chars[i] = (char) ('0' + solution[i]);
+            }
+            result.add(new String(chars));
+            return true;
+        });
+
+        return result;
     }
 
     /**
@@ -42,9 +35,13 @@ public class StandardCombinatorics {
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
 
-        // TODO: add your variables
+        // One variable per chosen element
+        for (int i = 0; i < k; i++) {
+            variables.add(new Solver.Variable(Solver.Domain.range(1, n)));
+        }
 
-        // TODO: add your constraints
+        // The elements in increasing order, so every combination appears once
+        constraints.add(new Solver.Increasing(variables.toArray(new Solver.Variable[0]), true));
 
         // Convert to arrays
         Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
@@ -54,10 +51,7 @@ public class StandardCombinatorics {
 
         // Use solver
         Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
-
-        // TODO: use result to construct answer
-        return new ArrayList<>();
+        return solver.findAllSolutions();
     }
 
     /**
@@ -68,9 +62,13 @@ public class StandardCombinatorics {
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
 
-        // TODO: add your variables
+        // One variable per chosen element
+        for (int i = 0; i < k; i++) {
+            variables.add(new Solver.Variable(Solver.Domain.range(1, n)));
+        }
 
-        // TODO: add your constraints
+        // The elements in non-decreasing order, so every combination appears once
+        constraints.add(new Solver.Increasing(variables.toArray(new Solver.Variable[0]), false));
 
         // Convert to arrays
         Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
@@ -80,10 +78,7 @@ public class StandardCombinatorics {
 
         // Use solver
         Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
-
-        // TODO: use result to construct answer
-        return new ArrayList<>();
+        return solver.findAllSolutions();
     }
 
     /**
@@ -94,9 +89,10 @@ public class StandardCombinatorics {
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
 
-        // TODO: add your variables
-
-        // TODO: add your constraints
+        // One variable per element, 1 if the element is in the subset
+        for (int i = 0; i < n; i++) {
+            variables.add(new Solver.Variable(List.of(0, 1)));
+        }
 
         // Convert to arrays
         Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
@@ -104,12 +100,23 @@ public class StandardCombinatorics {
         Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
         constraintsArray = constraints.toArray(constraintsArray);
 
-        // Use solver
+        // Use solver, building each subset straight from the solution
         Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
-
-        // TODO: use result to construct answer
-        return new ArrayList<>();
+        List<int[]> result = new ArrayList<>();
+        solver.forEachSolution(solution -> {
+            int size = 0;
+            for (int x : solution) {
+                size += x;
+            }
+            int[] subset = new int[size];
+            for (int i = 0, j = 0; i < n; i++) {
+                if (solution[i] == 1) subset[j++] = i + 1;
+            }
+            result.add(subset);
+            return true;
+        });
+
+        return result;
     }
 
     /**
@@ -120,9 +127,13 @@ public class StandardCombinatorics {
         List<Solver.Variable> variables = new ArrayList<>();
         List<Solver.Constraint> constraints = new ArrayList<>();
 
-        // TODO: add your variables
+        // One variable per position, holding the element at that position
+        for (int i = 0; i < n; i++) {
+            variables.add(new Solver.Variable(Solver.Domain.range(1, n)));
+        }
 
-        // TODO: add your constraints
+        // Every element appears once
+        constraints.add(new Solver.AllDifferent(variables.toArray(new Solver.Variable[0])));
 
         // Convert to arrays
         Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
@@ -132,9 +143,6 @@ public class StandardCombinatorics {
 
         // Use solver
         Solver solver = new Solver(variablesArray, constraintsArray);
-        List<int[]> result = solver.findAllSolutions();
-
-        // TODO: use result to construct answer
-        return new ArrayList<>();
+        return solver.findAllSolutions();
     }
 }
@@ -8,25 +8,107 @@ public class Sudoku {
      * @return the fully filled sudoku grid.
      */
     public static int[][] solve(int[][] grid) {
-        // Initialize lists for variables and constraints
-        List<Solver.Variable> variables = new ArrayList<>();
-        List<Solver.Constraint> constraints = new ArrayList<>();
+        // Use the compiled model of this size
+        Model model = models.get().computeIfAbsent(grid.length, Model::new);
+        int[] result = model.solve(grid);
 
-        // TODO: add your variables
+        return result == null ? grid : toGrid(result, grid.length);
+    }
+
+    /**
+     * Like {@link #solve}, but races a few search strategies on the available cores. Every racer works on its own
+     * copy of the model, which only pays off for puzzles that take the sequential search much longer than copying,
+     * e.g. the hardest large grids. The racers share one pool with every other search of the same width.
+     */
+    static int[][] solveRacing(int[][] grid) {
+        Model model = racingModels.get().computeIfAbsent(grid.length, n -> {
+            Model racing = new Model(n);
+            racing.solver.setPortfolio(Solver.Strategy.portfolio(Runtime.getRuntime().availableProcessors()));
+            return racing;
+        });
+        int[] result = model.solve(grid);
+
+        return result == null ? grid : toGrid(result, grid.length);
+    }
+
+    //Compiled models of the grid sizes solve has seen, per thread since a model holds the state of its search
+    private static final ThreadLocal<Map<Integer, Model>> models = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<Integer, Model>> racingModels = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * The variables and constraints of an empty n by n grid, built once and then reused for every puzzle of that
+     * size. Only the domains of the givens change between puzzles. Not thread safe.
+     */
+    static final class Model {
+        final Solver solver;
+
+        Model(int n) {
+            // Initialize lists for variables and constraints
+            List<Solver.Variable> variables = new ArrayList<>();
+            List<Solver.Constraint> constraints = new ArrayList<>();
+
+            int size = (int) Math.round(Math.sqrt(n));
+
+            // One variable per cell, in row-major order
+            for (int i = 0; i < n * n; i++) {
+                variables.add(new Solver.Variable(Solver.Domain.range(1, n)));
+            }
+
+            // Every row, column and block holds different values
+            for (int i = 0; i < n; i++) {
+                Solver.Variable[] row = new Solver.Variable[n];
+                Solver.Variable[] column = new Solver.Variable[n];
+                Solver.Variable[] block = new Solver.Variable[n];
+                for (int j = 0; j < n; j++) {
+                    row[j] = variables.get(i * n + j);
+                    column[j] = variables.get(j * n + i);
+                    block[j] = variables.get((i / size * size + j / size) * n + i % size * size + j % size);
+                }
+                constraints.add(new Solver.AllDifferent(row));
+                constraints.add(new Solver.AllDifferent(column));
+                constraints.add(new Solver.AllDifferent(block));
+            }
 
-        // TODO: add your constraints
+            // Convert to arrays
+            Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
+            variablesArray = variables.toArray(variablesArray);
+            Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
+            constraintsArray = constraints.toArray(constraintsArray);
 
-        // Convert to arrays
-        Solver.Variable[] variablesArray = new Solver.Variable[variables.size()];
-        variablesArray = variables.toArray(variablesArray);
-        Solver.Constraint[] constraintsArray = new Solver.Constraint[constraints.size()];
-        constraintsArray = constraints.toArray(constraintsArray);
+            solver = new Solver(variablesArray, constraintsArray);
+        }
 
-        // Use solver
-        Solver solver = new Solver(variablesArray, constraintsArray);
-        int[] result = solver.findOneSolution();
+        /**
+         * Forgets the previous puzzle and assigns the givens of the grid
+         * @return False if a given is not a value of the grid
+         */
+        boolean reset(int[][] grid) {
+            solver.reset();
+            int n = grid.length;
+            for (int i = 0; i < n * n; i++) {
+                int cell = grid[i / n][i % n];
+                if (cell != -1 && !solver.variables[i].assign(cell)) return false;
+            }
+            return true;
+        }
 
-        // TODO: use result to construct answer
+        /**
+         * Searches for a solution of the grid
+         * @return The values of the cells in row-major order, or null if the grid has no solution
+         */
+        int[] solve(int[][] grid) {
+            return reset(grid) ? solver.findOneSolution() : null;
+        }
+    }
+
+    /**
+     * Lays out the values of a solution, in row-major order, as an n by n grid
+     */
+    static int[][] toGrid(int[] values, int n) {
+        int[][] grid = new int[n][n];
+        for (int i = 0; i < values.length; i++) {
+            grid[i / n][i % n] = values[i];
+        }
         return grid;
     }
 }
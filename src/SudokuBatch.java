@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Solves many Sudoku puzzles at once, aiming for puzzles per second rather than the time of a single puzzle.
+ * Puzzles use the format of src/sudoku_instances: the block size, the level, then every cell with -1 for blanks,
+ * separated by any whitespace. A file can hold any number of puzzles back to back.
+ */
+public class SudokuBatch {
+    static final class Puzzle {
+        final int size; //Block size, the grid is size^2 by size^2
+        final int level;
+        final int[][] grid;
+        int[][] solution; //Null until solved, or if there is no solution
+
+        Puzzle(int size, int level, int[][] grid) {
+            this.size = size;
+            this.level = level;
+            this.grid = grid;
+        }
+    }
+
+    /**
+     * Memory-maps the given files, or every file in the given directories by name, and parses the puzzles in them.
+     * @return The puzzles, in the order they appear
+     */
+    static List<Puzzle> load(Path... paths) throws IOException {
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (Path path : paths) {
+            if (!Files.isDirectory(path)) {
+                loadFile(path, puzzles);
+                continue;
+            }
+
+            Path[] files;
+            try (Stream<Path> list = Files.list(path)) {
+                files = list.filter(Files::isRegularFile).sorted().toArray(Path[]::new);
+            }
+            for (Path file : files) {
+                loadFile(file, puzzles);
+            }
+        }
+        return puzzles;
+    }
+
+    private static void loadFile(Path file, List<Puzzle> puzzles) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) throw new IOException(file + " is too large to map at once");
+            parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), puzzles);
+        }
+    }
+
+    /**
+     * Parses every puzzle between the position and the limit of the buffer, reading numbers straight from the bytes.
+     * @param puzzles Receives the puzzles, in order
+     */
+    static void parse(ByteBuffer buffer, List<Puzzle> puzzles) {
+        while (skipWhitespace(buffer)) {
+            int size = nextInt(buffer);
+            int level = nextInt(buffer);
+            int n = size * size;
+
+            int[][] grid = new int[n][n];
+            for (int[] row : grid) {
+                for (int i = 0; i < n; i++) {
+                    row[i] = nextInt(buffer);
+                }
+            }
+            puzzles.add(new Puzzle(size, level, grid));
+        }
+    }
+
+    //Moves up to the next token, returns false if there is none
+    private static boolean skipWhitespace(ByteBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') break;
+            position++;
+        }
+        buffer.position(position);
+        return position < limit;
+    }
+
+    private static int nextInt(ByteBuffer buffer) {
+        if (!skipWhitespace(buffer)) throw new IllegalArgumentException("Puzzle ends early");
+
+        int position = buffer.position();
+        int limit = buffer.limit();
+        boolean negative = buffer.get(position) == '-';
+        if (negative) position++;
+
+        int start = position;
+        int value = 0;
+        while (position < limit) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) break;
+            value = value * 10 + digit;
+            position++;
+        }
+        if (position == start || position < limit && !isWhitespace(buffer.get(position))) {
+            throw new IllegalArgumentException("Expected a number at byte " + buffer.position());
+        }
+
+        buffer.position(position);
+        return negative ? -value : value;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Solves the puzzles on a pool of worker threads, each taking the next unsolved puzzle until none are left.
+     * Every puzzle is searched on a single thread, the pool itself is what runs in parallel.
+     * Workers keep one model per grid size and only reset it between puzzles.
+     * @param threads The number of workers
+     */
+    static void solveAll(List<Puzzle> puzzles, int threads) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<Void>> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                //The compiled model of every size the worker comes across, reset for each puzzle
+                Map<Integer, Sudoku.Model> models = new HashMap<>();
+                for (int i = next.getAndIncrement(); i < puzzles.size(); i = next.getAndIncrement()) {
+                    Puzzle puzzle = puzzles.get(i);
+                    int[] result = models.computeIfAbsent(puzzle.grid.length, Sudoku.Model::new).solve(puzzle.grid);
+                    if (result != null) puzzle.solution = Sudoku.toGrid(result, puzzle.grid.length);
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Void> worker : executor.invokeAll(workers)) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes the puzzles in the format they were read in, each with its solution in place of the grid if it has one.
+     * Everything is encoded into one buffer first, which is then written out at once.
+     */
+    static void write(Path file, List<Puzzle> puzzles) throws IOException {
+        long capacity = 0;
+        for (Puzzle puzzle : puzzles) {
+            int n = puzzle.grid.length;
+            int cellBytes = Math.max(2, Integer.toString(n).length()) + 1; //A value or -1, then a separator
+            capacity += 24 + (long) n * n * cellBytes;
+        }
+        if (capacity > Integer.MAX_VALUE) throw new IOException("Too many puzzles to write at once");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) capacity);
+        for (Puzzle puzzle : puzzles) {
+            putInt(buffer, puzzle.size);
+            buffer.put((byte) '\n');
+            putInt(buffer, puzzle.level);
+            buffer.put((byte) '\n');
+            for (int[] row : puzzle.solution != null ? puzzle.solution : puzzle.grid) {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) buffer.put((byte) '\t');
+                    putInt(buffer, row[i]);
+                }
+                buffer.put((byte) '\n');
+            }
+        }
+
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    //Writes the decimal digits of a value, without going through a String
+    private static void putInt(ByteBuffer buffer, int value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Solves every puzzle in the given files or directories and writes the solutions to a file,
+     * e.g. {@code java SudokuBatch solutions.txt src/sudoku_instances}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: SudokuBatch <output file> <puzzle file or directory>...");
+            return;
+        }
+
+        Path[] inputs = new Path[args.length - 1];
+        for (int i = 1; i < args.length; i++) {
+            inputs[i - 1] = Path.of(args[i]);
+        }
+
+        long start = System.nanoTime();
+        List<Puzzle> puzzles = load(inputs);
+        long parsed = System.nanoTime();
+        solveAll(puzzles, Runtime.getRuntime().availableProcessors());
+        long solved = System.nanoTime();
+        write(Path.of(args[0]), puzzles);
+        long written = System.nanoTime();
+
+        System.out.printf("%d puzzles: parsed in %.1fms, solved in %.1fms (%.0f puzzles/s), written in %.1fms%n",
+                puzzles.size(), (parsed - start) / 1e6, (solved - parsed) / 1e6,
+                puzzles.size() / ((solved - parsed) / 1e9), (written - solved) / 1e6);
+    }
+}
@@ -0,0 +1,259 @@
+import java.util.*;
+
+/**
+ * Remembers solved Sudoku puzzles, so that a puzzle seen before costs a lookup instead of a search.
+ * Puzzles are first brought into a canonical form: the grid is transposed, and its bands, stacks, rows and columns
+ * reordered, by invariants that do not change under those symmetries or under relabelling the digits. Then the
+ * digits are relabelled by first appearance. Puzzles that only differ by such a transformation usually share a
+ * canonical form; when invariants tie they may not, which costs a miss but never a wrong answer.
+ * The cache holds a bounded number of puzzles and evicts the least recently used one. It is thread safe.
+ */
+public class SudokuCache {
+    private final int capacity;
+    private final Map<String, int[]> entries; //Canonical puzzle to its canonical solution, null if it has none
+    private long hits, misses, evictions;
+
+    /**
+     * @param capacity The most puzzles to remember
+     */
+    public SudokuCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+                if (size() <= SudokuCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the filled in grid, like {@link Sudoku#solve}, from the cache if possible
+     * @param grid The partially filled in grid, unfilled positions are -1
+     */
+    public int[][] solve(int[][] grid) {
+        Canonical canonical = new Canonical(grid);
+        String key = canonical.key();
+
+        int[] solution;
+        boolean found;
+        synchronized (this) {
+            found = entries.containsKey(key);
+            solution = entries.get(key);
+            if (found) hits++;
+            else misses++;
+        }
+
+        if (!found) {
+            //Solve outside the lock, another thread missing on the same puzzle at worst solves it twice
+            int n = grid.length;
+            int[][] solved = Sudoku.solve(canonical.grid());
+            solution = new int[n * n];
+            for (int i = 0; i < n * n; i++) {
+                solution[i] = solved[i / n][i % n];
+                if (solution[i] == -1) {
+                    solution = null;
+                    break;
+                }
+            }
+            synchronized (this) {
+                entries.put(key, solution);
+            }
+        }
+
+        return solution == null ? grid : canonical.restore(solution);
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d puzzles, %d hits, %d misses, %d evictions", entries.size(), hits, misses, evictions);
+    }
+
+    /**
+     * A grid in canonical form, together with the transformation that produced it.
+     * Cell (r, c) of the canonical grid holds the label of cell (rows[r], columns[c]) of the grid, transposed first
+     * if needed.
+     */
+    static final class Canonical {
+        final int[][] original;
+        final int n, size;
+        final boolean transposed;
+        final int[] rows, columns;
+        final int[] cells; //The canonical grid in row-major order, -1 for blanks
+        final int[] values; //The original value of every canonical label, indexed by label - 1
+
+        Canonical(int[][] grid) {
+            this.original = grid;
+            this.n = grid.length;
+            this.size = (int) Math.round(Math.sqrt(n));
+
+            //Rows and columns get keys that do not depend on the labels, comparing the sorted keys of both decides
+            //whether to transpose
+            long[][] keys = lineKeys(grid);
+            long[] rowKeys = keys[0], columnKeys = keys[1];
+            this.transposed = compareSorted(columnKeys, rowKeys) > 0;
+            this.rows = order(transposed ? columnKeys : rowKeys);
+            this.columns = order(transposed ? rowKeys : columnKeys);
+
+            //Relabel by first appearance, the digits that are never given follow in increasing order
+            int[] labels = new int[n + 1];
+            this.values = new int[n];
+            this.cells = new int[n * n];
+            int next = 1;
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    int value = cell(r, c);
+                    if (value == -1) {
+                        cells[r * n + c] = -1;
+                        continue;
+                    }
+                    if (labels[value] == 0) {
+                        labels[value] = next;
+                        values[next - 1] = value;
+                        next++;
+                    }
+                    cells[r * n + c] = labels[value];
+                }
+            }
+            for (int value = 1; value <= n; value++) {
+                if (labels[value] == 0) values[next++ - 1] = value;
+            }
+        }
+
+        private int cell(int r, int c) {
+            return transposed ? original[columns[c]][rows[r]] : original[rows[r]][columns[c]];
+        }
+
+        String key() {
+            char[] key = new char[cells.length + 1];
+            key[0] = (char) n;
+            for (int i = 0; i < cells.length; i++) {
+                key[i + 1] = (char) (cells[i] + 1);
+            }
+            return new String(key);
+        }
+
+        int[][] grid() {
+            int[][] grid = new int[n][n];
+            for (int i = 0; i < cells.length; i++) {
+                grid[i / n][i % n] = cells[i];
+            }
+            return grid;
+        }
+
+        /**
+         * Maps a solution of the canonical grid back to the original one
+         * @param solution The labels of the canonical solution, in row-major order
+         */
+        int[][] restore(int[] solution) {
+            int[][] restored = new int[n][n];
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    int value = values[solution[r * n + c] - 1];
+                    if (transposed) restored[columns[c]][rows[r]] = value;
+                    else restored[rows[r]][columns[c]] = value;
+                }
+            }
+            return restored;
+        }
+
+        //Keys for the rows and the columns that only depend on where the givens are, and on which of them are equal.
+        //Every line starts from its number of givens and how often their digits are given in the whole grid, then a
+        //few rounds mix in the keys of the crossing lines at its givens, like colour refinement on a graph.
+        private static long[][] lineKeys(int[][] grid) {
+            int n = grid.length;
+            int[] occurrences = new int[n + 1];
+            for (int[] row : grid) {
+                for (int value : row) {
+                    if (value != -1) occurrences[value]++;
+                }
+            }
+
+            long[] rowKeys = new long[n], columnKeys = new long[n];
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    if (grid[r][c] == -1) continue;
+                    long given = (1L << 32) + mix(occurrences[grid[r][c]]);
+                    rowKeys[r] += given;
+                    columnKeys[c] += given;
+                }
+            }
+
+            for (int round = 0; round < 3; round++) {
+                long[] rows = rowKeys.clone(), columns = columnKeys.clone();
+                for (int r = 0; r < n; r++) {
+                    for (int c = 0; c < n; c++) {
+                        if (grid[r][c] == -1) continue;
+                        //Sums are order independent, so no sorting of the crossing keys is needed
+                        rows[r] += mix(columnKeys[c] ^ occurrences[grid[r][c]]);
+                        columns[c] += mix(rowKeys[r] ^ occurrences[grid[r][c]]);
+                    }
+                }
+                rowKeys = rows;
+                columnKeys = columns;
+            }
+            return new long[][]{rowKeys, columnKeys};
+        }
+
+        //A 64-bit finalizer, so that sums of mixed keys rarely collide by accident
+        private static long mix(long x) {
+            x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+            x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return x ^ (x >>> 33);
+        }
+
+        //Bands by the sum of their keys, then the lines within each band by key, both descending and stable
+        private int[] order(long[] keys) {
+            Integer[] bands = new Integer[size];
+            long[] bandKeys = new long[size];
+            for (int b = 0; b < size; b++) {
+                bands[b] = b;
+                for (int i = 0; i < size; i++) {
+                    bandKeys[b] += keys[b * size + i];
+                }
+            }
+            Arrays.sort(bands, (a, b) -> Long.compare(bandKeys[b], bandKeys[a]));
+
+            int[] order = new int[n];
+            Integer[] lines = new Integer[size];
+            for (int b = 0; b < size; b++) {
+                for (int i = 0; i < size; i++) {
+                    lines[i] = bands[b] * size + i;
+                }
+                Arrays.sort(lines, (x, y) -> Long.compare(keys[y], keys[x]));
+                for (int i = 0; i < size; i++) {
+                    order[b * size + i] = lines[i];
+                }
+            }
+            return order;
+        }
+
+        private static int compareSorted(long[] a, long[] b) {
+            long[] sortedA = a.clone(), sortedB = b.clone();
+            Arrays.sort(sortedA);
+            Arrays.sort(sortedB);
+            return Arrays.compare(sortedA, sortedB);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.*;
+
+/**
+ * A Sudoku grid that is edited one cell at a time, answering after every edit whether the grid can still be
+ * solved and which candidates every cell has left. The propagated state of the solver is kept between edits:
+ * placing a value takes a checkpoint of the trail and propagates only that value, and retracting the newest edit
+ * restores the checkpoint. Retracting an older edit restores its checkpoint and places the edits after it again.
+ * Not thread safe.
+ */
+public class SudokuSession {
+    private final int n;
+    private final Solver solver;
+
+    //The edits in the order they were made, each cell appears at most once
+    private final int[] editCells, editValues, checkpoints;
+    private int edits;
+    private int applied; //Edits whose value is in the domains, all edits before the first one that contradicts
+    private final int[] editOf; //Index of the edit of every cell, or -1
+
+    private int[] solution; //Last solution found, still valid while every value is in its domain
+    private int version; //Changes with every edit
+    private int unsolvableVersion = -1; //The version in which the search last found no solution
+
+    /**
+     * Starts with an empty n by n grid
+     */
+    public SudokuSession(int n) {
+        this.n = n;
+        this.solver = new Sudoku.Model(n).solver;
+        this.editCells = new int[n * n];
+        this.editValues = new int[n * n];
+        this.checkpoints = new int[n * n];
+        this.editOf = new int[n * n];
+        Arrays.fill(editOf, -1);
+    }
+
+    /**
+     * Starts with the givens of the grid, which can be retracted like any other edit
+     * @param grid The partially filled in grid, unfilled positions are -1
+     */
+    public SudokuSession(int[][] grid) {
+        this(grid.length);
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                if (grid[r][c] != -1) place(r, c, grid[r][c]);
+            }
+        }
+    }
+
+    /**
+     * Puts a value in a cell, replacing the value it had
+     * @return Whether the grid is still consistent, see {@link #isConsistent}
+     */
+    public boolean place(int row, int column, int value) {
+        int cell = row * n + column;
+        if (editOf[cell] != -1) retract(row, column);
+
+        editCells[edits] = cell;
+        editValues[edits] = value;
+        editOf[cell] = edits;
+        edits++;
+        version++;
+        if (applied == edits - 1 && apply(edits - 1)) applied++;
+        return isConsistent();
+    }
+
+    /**
+     * Empties a cell, nothing changes if it was already empty
+     */
+    public void retract(int row, int column) {
+        int edit = editOf[row * n + column];
+        if (edit == -1) return;
+        version++;
+
+        //Undo every edit since the checkpoint of this one, which later edits replayed with it may share.
+        //An edit after the contradiction changes nothing, the contradiction is still there.
+        boolean replay = edit <= applied;
+        if (edit < applied) {
+            int first = edit;
+            while (first > 0 && checkpoints[first - 1] == checkpoints[edit]) {
+                first--;
+            }
+            solver.trail.restore(checkpoints[edit]);
+            applied = first;
+        }
+        editOf[editCells[edit]] = -1;
+        for (int i = edit + 1; i < edits; i++) {
+            editCells[i - 1] = editCells[i];
+            editValues[i - 1] = editValues[i];
+            editOf[editCells[i - 1]] = i - 1;
+        }
+        edits--;
+        if (replay) replay();
+    }
+
+    //Applies the edits after the applied ones again, in their original order
+    private void replay() {
+        if (applied == edits) return;
+
+        //All at once first, with a single propagation and a checkpoint they share
+        int checkpoint = solver.trail.checkpoint();
+        boolean consistent = true;
+        for (int i = applied; i < edits; i++) {
+            checkpoints[i] = checkpoint;
+            Solver.Variable variable = solver.variables[editCells[i]];
+            consistent &= variable.domain.contains(editValues[i]) && variable.assign(editValues[i]);
+        }
+        //Also empties the queue of the constraints the assignments woke up
+        if (solver.propagate() && consistent) {
+            applied = edits;
+            return;
+        }
+        solver.trail.restore(checkpoint);
+
+        //One by one to find the edit that contradicts
+        while (applied < edits && apply(applied)) {
+            applied++;
+        }
+    }
+
+    //Assigns the value of an edit and propagates it, leaving the domains as they were if that contradicts
+    private boolean apply(int edit) {
+        checkpoints[edit] = solver.trail.checkpoint();
+        if (solver.variables[editCells[edit]].assign(editValues[edit]) && solver.propagate()) return true;
+        solver.trail.restore(checkpoints[edit]);
+        return false;
+    }
+
+    /**
+     * Whether propagating the values placed so far found no contradiction. The grid may still have no solution,
+     * which only {@link #isSolvable} finds out for sure.
+     */
+    public boolean isConsistent() {
+        return applied == edits;
+    }
+
+    /**
+     * The values a cell can still take given the values placed so far, in increasing order.
+     * After a contradiction they are the candidates from just before the edit that caused it.
+     */
+    public int[] candidates(int row, int column) {
+        Solver.Domain domain = solver.variables[row * n + column].domain;
+        int[] values = new int[domain.size()];
+        int i = 0;
+        for (int v = domain.min(); i < values.length; v = domain.next(v)) {
+            values[i++] = v;
+        }
+        return values;
+    }
+
+    /**
+     * The value placed in a cell, or -1 if it is empty
+     */
+    public int value(int row, int column) {
+        int edit = editOf[row * n + column];
+        return edit == -1 ? -1 : editValues[edit];
+    }
+
+    /**
+     * Whether the grid has a solution, searching only if the last solution found no longer fits
+     */
+    public boolean isSolvable() {
+        return solution() != null;
+    }
+
+    /**
+     * A solution of the grid, without changing the session
+     * @return The filled in grid, or null if there is none
+     */
+    public int[][] solution() {
+        if (!isConsistent() || unsolvableVersion == version) return null;
+        if (solution == null || !fits(solution)) {
+            solution = null;
+            solver.search(values -> {
+                solution = values.clone();
+                return false;
+            });
+            if (solution == null) {
+                unsolvableVersion = version;
+                return null;
+            }
+        }
+        return Sudoku.toGrid(solution, n);
+    }
+
+    private boolean fits(int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (!solver.variables[i].domain.contains(values[i])) return false;
+        }
+        return true;
+    }
+}
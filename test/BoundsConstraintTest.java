@@ -0,0 +1,182 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundsConstraintTest {
+    @Test
+    public void testAliasedLessEq() {
+        Solver.Variable v = new Solver.Variable(Solver.Domain.range(0, 4));
+        assertEquals(0, new Solver(new Solver.Variable[]{v}, new Solver.Constraint[]{new Solver.LessThan(v, v)})
+                .countSolutions(), "v < v");
+
+        v = new Solver.Variable(Solver.Domain.range(0, 4));
+        assertEquals(5, new Solver(new Solver.Variable[]{v}, new Solver.Constraint[]{new Solver.LessEq(v, v)})
+                .countSolutions(), "v <= v");
+
+        v = new Solver.Variable(Solver.Domain.range(0, 4));
+        assertEquals(5, new Solver(new Solver.Variable[]{v}, new Solver.Constraint[]{new Solver.LessThan(v, v, 1)})
+                .countSolutions(), "v < v + 1");
+
+        v = new Solver.Variable(Solver.Domain.range(0, 4));
+        assertEquals(0, new Solver(new Solver.Variable[]{v}, new Solver.Constraint[]{new Solver.LessEq(v, v, -2)})
+                .countSolutions(), "v <= v - 2");
+    }
+
+    @Test
+    public void testRandomModelsAgainstBruteForce() {
+        Random random = new Random(22);
+        for (int model = 0; model < 300; model++) {
+            int n = 2 + random.nextInt(3);
+            List<List<Integer>> domains = Models.domains(random, n, -2, 3);
+
+            //Each constraint is built by a function of the variables, next to the check of the same relation
+            List<Function<Solver.Variable[], Solver.Constraint>> builders = new ArrayList<>();
+            List<Predicate<int[]>> checks = new ArrayList<>();
+            StringBuilder description = new StringBuilder();
+            for (int c = 0, count = 1 + random.nextInt(3); c < count; c++) {
+                int x = random.nextInt(n), y = random.nextInt(n); //Either may be the same variable
+                int offset = random.nextInt(5) - 2;
+                switch (random.nextInt(4)) {
+                    case 0:
+                        builders.add(v -> new Solver.LessEq(v[x], v[y], offset));
+                        checks.add(s -> s[x] <= s[y] + offset);
+                        description.append(" x").append(x).append("<=x").append(y).append('+').append(offset);
+                        break;
+                    case 1:
+                        builders.add(v -> new Solver.LessThan(v[x], v[y], offset));
+                        checks.add(s -> s[x] < s[y] + offset);
+                        description.append(" x").append(x).append("<x").append(y).append('+').append(offset);
+                        break;
+                    case 2: {
+                        int[] terms = new int[2 + random.nextInt(2)];
+                        int[] coefficients = new int[terms.length];
+                        for (int i = 0; i < terms.length; i++) {
+                            terms[i] = random.nextInt(n);
+                            coefficients[i] = random.nextInt(5) - 2;
+                        }
+                        int min = random.nextInt(7) - 4, max = min + random.nextInt(4);
+                        builders.add(v -> {
+                            Solver.Variable[] vars = new Solver.Variable[terms.length];
+                            for (int i = 0; i < terms.length; i++) vars[i] = v[terms[i]];
+                            return new Solver.Sum(vars, coefficients, min, max);
+                        });
+                        checks.add(s -> {
+                            long sum = 0;
+                            for (int i = 0; i < terms.length; i++) sum += (long) coefficients[i] * s[terms[i]];
+                            return min <= sum && sum <= max;
+                        });
+                        description.append(" sum").append(Arrays.toString(terms)).append(Arrays.toString(coefficients))
+                                .append(" in [").append(min).append(',').append(max).append(']');
+                        break;
+                    }
+                    default: {
+                        int[] scope = new int[1 + random.nextInt(n + 1)];
+                        for (int i = 0; i < scope.length; i++) scope[i] = random.nextInt(n);
+                        int value = random.nextInt(4) - 1, min = random.nextInt(2), max = min + random.nextInt(2);
+                        builders.add(v -> {
+                            Solver.Variable[] vars = new Solver.Variable[scope.length];
+                            for (int i = 0; i < scope.length; i++) vars[i] = v[scope[i]];
+                            return new Solver.Count(vars, value, min, max);
+                        });
+                        checks.add(s -> {
+                            int taken = 0;
+                            for (int i : scope) if (s[i] == value) taken++;
+                            return min <= taken && taken <= max;
+                        });
+                        description.append(" count").append(Arrays.toString(scope)).append('=').append(value)
+                                .append(" in [").append(min).append(',').append(max).append(']');
+                    }
+                }
+            }
+
+            Solver.Variable[] variables = Models.variables(domains);
+            Solver.Constraint[] constraints = new Solver.Constraint[builders.size()];
+            for (int i = 0; i < constraints.length; i++) constraints[i] = builders.get(i).apply(variables);
+
+            Set<List<Integer>> expected = Models.bruteForce(domains, s -> checks.stream().allMatch(c -> c.test(s)));
+            assertEquals(expected, Models.asSet(new Solver(variables, constraints).findAllSolutions()),
+                    "Domains " + domains + ", constraints" + description);
+        }
+    }
+
+    @Test
+    public void testBoundsAllDifferentAgainstBruteForce() {
+        Random random = new Random(8);
+        for (int model = 0; model < 300; model++) {
+            int n = 1 + random.nextInt(5);
+            List<List<Integer>> domains = new ArrayList<>();
+            int[] offsets = new int[n];
+            for (int i = 0; i < n; i++) {
+                List<Integer> domain = new ArrayList<>();
+                int lo = random.nextInt(4) - 2, hi = lo + random.nextInt(5);
+                for (int value = lo; value <= hi; value++) {
+                    if (value == lo || value == hi || random.nextInt(4) != 0) domain.add(value);
+                }
+                domains.add(domain);
+                offsets[i] = random.nextInt(3) - 1;
+            }
+            String description = "Domains " + domains + ", offsets " + Arrays.toString(offsets);
+            Predicate<int[]> different = s -> {
+                Set<Integer> values = new HashSet<>();
+                for (int i = 0; i < s.length; i++) {
+                    if (!values.add(s[i] + offsets[i])) return false;
+                }
+                return true;
+            };
+
+            Solver.Variable[] variables = Models.variables(domains);
+            Solver.BoundsAllDifferent constraint = new Solver.BoundsAllDifferent(variables, offsets);
+            Solver solver = new Solver(variables, new Solver.Constraint[]{constraint});
+            assertEquals(Models.bruteForce(domains, different), Models.asSet(solver.findAllSolutions()), description);
+
+            //Bounds consistency: until nothing moves, every bound that no solution over the intervals between the
+            //bounds uses is removed
+            List<List<Integer>> expected = new ArrayList<>();
+            for (List<Integer> domain : domains) expected.add(new ArrayList<>(domain));
+            boolean moved = true;
+            while (moved && expected.stream().noneMatch(List::isEmpty)) {
+                List<List<Integer>> intervals = new ArrayList<>();
+                for (List<Integer> domain : expected) {
+                    intervals.add(Models.range(domain.get(0), domain.get(domain.size() - 1)));
+                }
+                Set<List<Integer>> relaxed = Models.bruteForce(intervals, different);
+                moved = false;
+                for (int i = 0; i < n; i++) {
+                    int k = i;
+                    List<Integer> domain = expected.get(i);
+                    for (int end : new int[]{0, domain.size() - 1}) {
+                        int value = domain.get(end);
+                        if (relaxed.stream().noneMatch(s -> s.get(k) == value)) {
+                            moved = true;
+                            domain.remove(end);
+                            break;
+                        }
+                    }
+                }
+            }
+
+            variables = Models.variables(domains);
+            constraint = new Solver.BoundsAllDifferent(variables, offsets);
+            new Solver(variables, new Solver.Constraint[]{constraint});
+            boolean consistent = true;
+            for (int round = 0; consistent && round < 100; round++) {
+                consistent = constraint.infer();
+            }
+            if (expected.stream().anyMatch(List::isEmpty)) {
+                assertFalse(consistent, description);
+                continue;
+            }
+            assertTrue(consistent, description);
+            for (int i = 0; i < n; i++) {
+                List<Integer> domain = expected.get(i);
+                int min = domain.get(0), max = domain.get(domain.size() - 1);
+                assertEquals(min, variables[i].domain.min(), "Min of x" + i + ", " + description);
+                assertEquals(max, variables[i].domain.max(), "Max of x" + i + ", " + description);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnumeratorTest {
+    @Test
+    public void testGrayCodeAgainstBruteForce() {
+        Random random = new Random(21);
+        for (int model = 0; model < 100; model++) {
+            List<List<Integer>> domains = Models.domains(random, 1 + random.nextInt(5), -2, 3);
+            Solver solver = new Solver(Models.variables(domains), new Solver.Constraint[0]);
+            assertTrue(Solver.Enumerator.of(solver) instanceof Solver.GrayCode);
+
+            List<int[]> solutions = check(solver, Models.bruteForce(domains, s -> true),
+                    "Domains " + domains);
+            for (int k = 1; k < solutions.size(); k++) {
+                assertEquals(1, differences(solutions.get(k - 1), solutions.get(k)), "Step " + k + " of " + domains);
+            }
+        }
+    }
+
+    @Test
+    public void testRevolvingDoorAgainstBruteForce() {
+        Random random = new Random(22);
+        for (int model = 0; model < 100; model++) {
+            int n = 1 + random.nextInt(5);
+            int lo = random.nextInt(5) - 2, hi = lo + random.nextInt(6);
+            boolean strict = random.nextBoolean();
+            //The chain in any order of the variables
+            int[] chain = shuffled(n, random);
+
+            List<Integer> range = Models.range(lo, hi);
+            Solver solver = chained(Collections.nCopies(n, range), chain, strict);
+            assertTrue(Solver.Enumerator.of(solver) instanceof Solver.RevolvingDoor);
+
+            Predicate<int[]> increasing = s -> {
+                for (int i = 1; i < n; i++) {
+                    if (strict ? s[chain[i - 1]] >= s[chain[i]] : s[chain[i - 1]] > s[chain[i]]) return false;
+                }
+                return true;
+            };
+            String description = (strict ? "Strict " : "") + "chain " + Arrays.toString(chain) + " over [" + lo
+                    + ", " + hi + "]";
+            List<int[]> solutions = check(solver,
+                    Models.bruteForce(Collections.nCopies(n, range), increasing), description);
+            for (int k = 1; k < solutions.size(); k++) {
+                int changed = differences(solutions.get(k - 1), solutions.get(k));
+                assertTrue(changed >= 1 && changed <= 2, "Step " + k + " of " + description);
+            }
+
+            //Once a variable has a domain of its own, the chain is searched instead
+            List<List<Integer>> domains = new ArrayList<>(Collections.nCopies(n, range));
+            domains.set(0, range.subList(0, (range.size() + 1) / 2));
+            Solver searched = chained(domains, chain, strict);
+            check(searched, Models.bruteForce(domains, increasing), "Narrowed " + description);
+        }
+    }
+
+    @Test
+    public void testHeapAgainstBruteForce() {
+        Random random = new Random(23);
+        for (int n = 1; n <= 6; n++) {
+            int[] order = shuffled(n, random);
+            List<Integer> values = new ArrayList<>();
+            for (int v = 0; v < n; v++) values.add(3 * v - 4);
+            List<List<Integer>> domains = Collections.nCopies(n, values);
+
+            Solver.Variable[] variables = Models.variables(domains);
+            Solver.Variable[] scope = new Solver.Variable[n];
+            for (int i = 0; i < n; i++) scope[i] = variables[order[i]];
+            Solver solver = new Solver(variables, new Solver.Constraint[]{new Solver.AllDifferent(scope)});
+            assertTrue(Solver.Enumerator.of(solver) instanceof Solver.Heap);
+
+            int size = n;
+            List<int[]> solutions = check(solver, Models.bruteForce(domains,
+                    s -> new HashSet<>(Models.asList(s)).size() == size), n + " values");
+            for (int k = 1; k < solutions.size(); k++) {
+                int[] previous = solutions.get(k - 1), next = solutions.get(k);
+                assertEquals(2, differences(previous, next), "Step " + k + " of " + n);
+                int[] sorted = previous.clone(), sortedNext = next.clone();
+                Arrays.sort(sorted);
+                Arrays.sort(sortedNext);
+                assertArrayEquals(sorted, sortedNext, "Step " + k + " of " + n + " is not a swap");
+            }
+        }
+    }
+
+    @Test
+    public void testListenerEndsTheListing() {
+        List<Integer> values = List.of(0, 1, 2, 3, 4);
+        List<Solver> solvers = List.of(
+                new Solver(Models.variables(Collections.nCopies(4, values)), new Solver.Constraint[0]),
+                chained(Collections.nCopies(4, values), new int[]{0, 1, 2, 3}, false),
+                Models.permutations(5));
+        for (Solver solver : solvers) {
+            int[] seen = new int[1];
+            solver.forEachSolution(solution -> ++seen[0] < 7);
+            assertEquals(7, seen[0]);
+            assertEquals(7, solver.solutionCount);
+
+            solver.setParallelism(2);
+            long count = Solver.Enumerator.of(solver).count;
+            assertEquals(count, solver.countSolutions(), "Parallel count");
+        }
+    }
+
+    //Lists the solutions in the order the solver finds them, checks them against the expected ones and the count
+    private static List<int[]> check(Solver solver, Set<List<Integer>> expected, String description) {
+        List<int[]> solutions = new ArrayList<>();
+        solver.forEachSolution(solution -> solutions.add(solution.clone()));
+        assertEquals(expected, Models.asSet(solutions), description);
+        assertEquals(expected.size(), solver.solutionCount, description);
+        assertEquals(expected.size(), solver.countSolutions(), description);
+        if (!solutions.isEmpty()) {
+            int[] smallest = Collections.min(solutions, Arrays::compare);
+            assertArrayEquals(smallest, solutions.get(0), "First of " + description);
+        }
+        return solutions;
+    }
+
+    private static int differences(int[] a, int[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) count++;
+        }
+        return count;
+    }
+
+    private static int[] shuffled(int n, Random random) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < n; i++) order.add(i);
+        Collections.shuffle(order, random);
+        int[] shuffled = new int[n];
+        for (int i = 0; i < n; i++) shuffled[i] = order.get(i);
+        return shuffled;
+    }
+
+    private static Solver chained(List<List<Integer>> domains, int[] chain, boolean strict) {
+        Solver.Variable[] variables = Models.variables(domains);
+        Solver.Variable[] scope = new Solver.Variable[chain.length];
+        for (int i = 0; i < chain.length; i++) scope[i] = variables[chain[i]];
+        return new Solver(variables, new Solver.Constraint[]{new Solver.Increasing(scope, strict)});
+    }
+}
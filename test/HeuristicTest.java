@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeuristicTest {
+    @Test
+    public void testEveryHeuristicFindsEverySolution() {
+        List<Supplier<Solver.VariableSelector>> selectors = List.of(
+                Solver.MinDomain::new, () -> new Solver.RandomMinDomain(7), Solver.Lexicographic::new,
+                () -> new Solver.RandomVariable(3), Solver.DomWdeg::new, Solver.Activity::new, Solver.Impact::new);
+        Random random = new Random(15);
+        for (int model = 0; model < 50; model++) {
+            long seed = random.nextLong();
+            Set<List<Integer>> expected = Models.solutions(model(new Random(seed)));
+            for (Supplier<Solver.VariableSelector> selector : selectors) {
+                for (int threads = 1; threads <= 2; threads++) {
+                    Solver solver = model(new Random(seed));
+                    solver.variableSelector = selector.get();
+                    //Impact picks the values too
+                    solver.valueOrder = solver.variableSelector instanceof Solver.ValueOrder
+                            ? (Solver.ValueOrder) solver.variableSelector : new Solver.DescendingValues();
+                    solver.setParallelism(threads);
+                    assertEquals(expected, Models.asSet(solver.findAllSolutions()),
+                            solver.variableSelector.getClass().getSimpleName() + " on model " + model + ", "
+                                    + threads + " threads");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSizeIndexFollowsTheDomains() {
+        Random random = new Random(16);
+        for (int model = 0; model < 50; model++) {
+            Solver solver = model(random);
+            int[] selections = new int[1];
+            solver.variableSelector = new Solver.VariableSelector() {
+                public boolean usesSizes(Solver solver) {
+                    return true;
+                }
+
+                public int select(Solver solver) {
+                    assertNotNull(solver.sizes);
+                    int smallest = solver.sizes.smallest();
+                    assertEquals(scan(solver), smallest, "Smallest domain after " + selections[0] + " selections");
+                    selections[0]++;
+                    return smallest;
+                }
+            };
+            solver.countSolutions();
+        }
+    }
+
+    @Test
+    public void testSizeIndexOnlyWhenUsed() {
+        //Above the scan limit of MinDomain, so it keeps an index, and two colours alternating along a path
+        int n = Solver.MinDomain.SCAN_LIMIT + 2;
+        Solver solver = path(n);
+        assertEquals(2, solver.countSolutions());
+        assertNotNull(solver.sizes);
+
+        solver.variableSelector = new Solver.Lexicographic();
+        assertEquals(2, solver.countSolutions());
+        assertNull(solver.sizes, "Lexicographic does not read the index");
+
+        solver.variableSelector = new Solver.MinDomain();
+        assertEquals(2, solver.countSolutions());
+        assertNotNull(solver.sizes);
+
+        Solver small = path(Solver.MinDomain.SCAN_LIMIT);
+        assertEquals(2, small.countSolutions());
+        assertNull(small.sizes, "Small models scan instead");
+    }
+
+    //Lowest index among the unassigned variables with the smallest domain
+    private static int scan(Solver solver) {
+        int best = -1;
+        for (int i = 0; i < solver.variables.length; i++) {
+            int size = solver.variables[i].domain.size();
+            if (size > 1 && (best == -1 || size < solver.variables[best].domain.size())) best = i;
+        }
+        return best;
+    }
+
+    private static Solver path(int n) {
+        Solver.Variable[] variables = Models.variables(Collections.nCopies(n, List.of(0, 1)));
+        Solver.Constraint[] constraints = new Solver.Constraint[n - 1];
+        for (int i = 0; i + 1 < n; i++) {
+            constraints[i] = new Solver.NotEqual(variables[i], variables[i + 1]);
+        }
+        return new Solver(variables, constraints);
+    }
+
+    //Variables with domains of different sizes, some of them wider than a word, under x != y + offset constraints
+    private static Solver model(Random random) {
+        int n = 3 + random.nextInt(3);
+        Solver.Variable[] variables = new Solver.Variable[n];
+        for (int i = 0; i < n; i++) {
+            int lo = random.nextInt(3);
+            int width = i == 0 && random.nextInt(4) == 0 ? 64 + random.nextInt(6) : random.nextInt(5);
+            variables[i] = new Solver.Variable(Solver.Domain.range(lo, lo + width));
+        }
+        List<Solver.Constraint> constraints = new ArrayList<>();
+        for (int k = 0; k < 2 * n; k++) {
+            int x = random.nextInt(n), y = random.nextInt(n);
+            if (x != y) constraints.add(new Solver.NotEqual(variables[x], variables[y], random.nextInt(3) - 1));
+        }
+        if (random.nextBoolean()) constraints.add(new Solver.AllDifferent(Arrays.copyOf(variables, 3)));
+        return new Solver(variables, constraints.toArray(new Solver.Constraint[0]));
+    }
+}
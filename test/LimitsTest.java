@@ -0,0 +1,137 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LimitsTest {
+    @Test
+    public void testSolutionLimitsAgainstBruteForce() {
+        Random random = new Random(25);
+        for (int model = 0; model < 40; model++) {
+            long seed = random.nextLong();
+            Set<List<Integer>> expected = Models.solutions(Models.notEqual(seed));
+            int total = expected.size();
+            //Below, at and above the number of solutions
+            long[] limits = {0, random.nextInt(total + 1), Math.max(0, total - 1), total, total + 1};
+            for (long limit : limits) {
+                for (int threads = 1; threads <= 3; threads++) {
+                    String description = "Limit " + limit + " of " + total + " on model " + model + ", " + threads
+                            + " threads";
+                    Solver.Outcome outcome = limit < total ? Solver.Outcome.LIMIT_REACHED : Solver.Outcome.COMPLETE;
+
+                    Solver solver = Models.notEqual(seed);
+                    solver.setParallelism(threads);
+                    solver.setLimits(new Solver.Limits().solutions(limit));
+                    Set<List<Integer>> found = Models.asSet(solver.findAllSolutions());
+                    assertEquals(Math.min(limit, total), found.size(), description);
+                    assertTrue(expected.containsAll(found), description);
+                    assertEquals(found.size(), solver.solutionCount, description);
+                    assertEquals(outcome, solver.getOutcome(), description);
+
+                    solver = Models.notEqual(seed);
+                    solver.setParallelism(threads);
+                    solver.setLimits(new Solver.Limits().solutions(limit));
+                    assertEquals(Math.min(limit, total), solver.countSolutions(), "Count, " + description);
+                    assertEquals(outcome, solver.getOutcome(), "Count, " + description);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEnumeratedModelsAtTheLimit() {
+        //Permutations are listed or counted without a search
+        for (long limit : new long[]{7, 119, 120, 121}) {
+            Solver.Outcome outcome = limit < 120 ? Solver.Outcome.LIMIT_REACHED : Solver.Outcome.COMPLETE;
+            Solver solver = Models.permutations(5);
+            solver.setLimits(new Solver.Limits().solutions(limit));
+            assertEquals(Math.min(limit, 120), solver.findAllSolutions().size(), "Limit " + limit);
+            assertEquals(outcome, solver.getOutcome(), "Limit " + limit);
+
+            solver = Models.permutations(5);
+            solver.setLimits(new Solver.Limits().solutions(limit));
+            assertEquals(Math.min(limit, 120), solver.countSolutions(), "Count with limit " + limit);
+            assertEquals(outcome, solver.getOutcome(), "Count with limit " + limit);
+        }
+    }
+
+    @Test
+    public void testNodeLimit() {
+        for (int threads = 1; threads <= 3; threads++) {
+            Solver solver = Models.queens(12);
+            solver.setParallelism(threads);
+            solver.setLimits(new Solver.Limits().nodes(500));
+            solver.countSolutions();
+            assertEquals(Solver.Outcome.LIMIT_REACHED, solver.getOutcome());
+            long nodes = solver.getStatistics().nodes;
+            assertTrue(nodes >= 500 && nodes <= 500 + threads * Solver.Budget.CHECK_INTERVAL, nodes + " nodes");
+
+            //Every following search is bounded, until the limits are lifted
+            solver.setLimits(new Solver.Limits());
+            assertEquals(14200, solver.countSolutions());
+            assertEquals(Solver.Outcome.COMPLETE, solver.getOutcome());
+        }
+    }
+
+    @Test
+    public void testTimeAndMemoryLimits() {
+        Solver solver = Models.queens(17);
+        solver.setLimits(new Solver.Limits().time(50, TimeUnit.MILLISECONDS));
+        long start = System.nanoTime();
+        solver.countSolutions();
+        assertEquals(Solver.Outcome.LIMIT_REACHED, solver.getOutcome());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "Ran past the time limit");
+
+        //A limit is only looked at every so many nodes, so the model must take longer than that
+        solver = Models.queens(17);
+        solver.setLimits(new Solver.Limits().memory(1));
+        solver.countSolutions();
+        assertEquals(Solver.Outcome.LIMIT_REACHED, solver.getOutcome());
+    }
+
+    @Test
+    public void testCancel() {
+        for (int threads = 1; threads <= 3; threads++) {
+            Solver solver = Models.queens(10);
+            solver.setParallelism(threads);
+            solver.cancel(); //Nothing is running, so the next search does not see it
+            assertEquals(724, solver.countSolutions());
+            assertEquals(Solver.Outcome.COMPLETE, solver.getOutcome());
+
+            Set<List<Integer>> found = new HashSet<>();
+            solver.forEachSolution(solution -> {
+                found.add(Models.asList(solution));
+                if (found.size() == 3) solver.cancel();
+                return true;
+            });
+            assertEquals(Solver.Outcome.CANCELLED, solver.getOutcome());
+            assertTrue(found.size() >= 3 && found.size() < 724, found.size() + " solutions");
+        }
+
+        //From another thread, while the search is running
+        Solver solver = Models.queens(17);
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            solver.cancel();
+        });
+        canceller.start();
+        solver.countSolutions();
+        assertEquals(Solver.Outcome.CANCELLED, solver.getOutcome());
+    }
+
+    @Test
+    public void testCancelPausedSearch() {
+        Solver solver = Models.queens(17);
+        Solver.Search search = solver.start(null);
+        search.resume(100);
+        solver.cancel();
+        assertTrue(search.resume(1000));
+        assertEquals(Solver.Outcome.CANCELLED, solver.getOutcome());
+    }
+}
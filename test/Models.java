@@ -0,0 +1,161 @@
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Models shared by the tests, and the brute force their solutions are checked against
+ */
+final class Models {
+    private Models() {
+    }
+
+    static Solver.Variable[] variables(List<List<Integer>> domains) {
+        Solver.Variable[] variables = new Solver.Variable[domains.size()];
+        for (int i = 0; i < variables.length; i++) variables[i] = new Solver.Variable(domains.get(i));
+        return variables;
+    }
+
+    static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int value = from; value <= to; value++) values.add(value);
+        return values;
+    }
+
+    //n domains, each with some of the values from lo to hi and never empty
+    static List<List<Integer>> domains(Random random, int n, int lo, int hi) {
+        List<List<Integer>> domains = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            List<Integer> domain = new ArrayList<>();
+            for (int value = lo; value <= hi; value++) {
+                if (random.nextInt(4) != 0) domain.add(value);
+            }
+            if (domain.isEmpty()) domain.add(lo + random.nextInt(hi - lo + 1));
+            domains.add(domain);
+        }
+        return domains;
+    }
+
+    //The current domains of the variables of the solver
+    static List<List<Integer>> domains(Solver solver) {
+        List<List<Integer>> domains = new ArrayList<>();
+        for (Solver.Variable v : solver.variables) {
+            List<Integer> domain = new ArrayList<>();
+            for (int value = v.domain.min(); value != Integer.MAX_VALUE; value = v.domain.next(value)) {
+                domain.add(value);
+            }
+            domains.add(domain);
+        }
+        return domains;
+    }
+
+    //A lone Queens constraint over n rows
+    static Solver queens(int n) {
+        Solver.Variable[] rows = variables(Collections.nCopies(n, range(0, n - 1)));
+        return new Solver(rows, new Solver.Constraint[]{new Solver.Queens(rows)});
+    }
+
+    //All different over n variables that range over n values, whose solutions are the permutations
+    static Solver permutations(int n) {
+        Solver.Variable[] variables = variables(Collections.nCopies(n, range(0, n - 1)));
+        return new Solver(variables, new Solver.Constraint[]{new Solver.AllDifferent(variables)});
+    }
+
+    //x != y + offset over random pairs of three to five variables with small domains, some of them with gaps
+    static Solver notEqual(long seed) {
+        Random random = new Random(seed);
+        int n = 3 + random.nextInt(3);
+        Solver.Variable[] variables = variables(domains(random, n, 0, 2 + random.nextInt(4)));
+        Solver.Constraint[] constraints = new Solver.Constraint[n];
+        for (int k = 0; k < n; k++) {
+            int x = random.nextInt(n), y = (x + 1 + random.nextInt(n - 1)) % n;
+            constraints[k] = new Solver.NotEqual(variables[x], variables[y], random.nextInt(3) - 1);
+        }
+        return new Solver(variables, constraints);
+    }
+
+    //The solutions of a model that has not been searched yet, by trying every assignment of its domains
+    static Set<List<Integer>> solutions(Solver solver) {
+        return bruteForce(domains(solver), s -> satisfies(solver, s));
+    }
+
+    static boolean satisfies(Solver solver, int[] s) {
+        for (Solver.Constraint c : solver.constraints) {
+            if (c instanceof Solver.NotEqual) {
+                Solver.NotEqual notEqual = (Solver.NotEqual) c;
+                if (s[notEqual.x.index] == s[notEqual.y.index] + notEqual.offset) return false;
+            } else if (c instanceof Solver.AllDifferent) {
+                Solver.AllDifferent allDifferent = (Solver.AllDifferent) c;
+                Set<Integer> seen = new HashSet<>();
+                for (int i = 0; i < allDifferent.vars.length; i++) {
+                    if (!seen.add(s[allDifferent.vars[i].index] + allDifferent.offsets[i])) return false;
+                }
+            } else if (c instanceof Solver.Queens) {
+                int[] board = new int[c.scope.length];
+                for (int r = 0; r < board.length; r++) board[r] = s[c.scope[r].index];
+                if (!isQueens(board)) return false;
+            } else {
+                throw new IllegalArgumentException("No check for " + c.getClass().getSimpleName());
+            }
+        }
+        return true;
+    }
+
+    //Whether the columns of the rows place queens on the board that do not attack each other
+    static boolean isQueens(int[] board) {
+        for (int r = 0; r < board.length; r++) {
+            if (board[r] < 0 || board[r] >= board.length) return false;
+            for (int q = 0; q < r; q++) {
+                if (board[q] == board[r] || Math.abs(board[q] - board[r]) == r - q) return false;
+            }
+        }
+        return true;
+    }
+
+    //Every assignment of the domains that passes the check
+    static Set<List<Integer>> bruteForce(List<List<Integer>> domains, Predicate<int[]> check) {
+        Set<List<Integer>> solutions = new HashSet<>();
+        int[] assignment = new int[domains.size()];
+        int[] digits = new int[domains.size()];
+        while (true) {
+            for (int i = 0; i < assignment.length; i++) assignment[i] = domains.get(i).get(digits[i]);
+            if (check.test(assignment)) solutions.add(asList(assignment));
+
+            int i = 0;
+            while (i < digits.length && ++digits[i] == domains.get(i).size()) digits[i++] = 0;
+            if (i == digits.length) return solutions;
+        }
+    }
+
+    static Set<List<Integer>> asSet(List<int[]> solutions) {
+        Set<List<Integer>> set = new HashSet<>();
+        for (int[] solution : solutions) {
+            assertTrue(set.add(asList(solution)), "Reported twice: " + Arrays.toString(solution));
+        }
+        return set;
+    }
+
+    static List<Integer> asList(int[] values) {
+        List<Integer> list = new ArrayList<>(values.length);
+        for (int value : values) list.add(value);
+        return list;
+    }
+
+    //A filled in sudoku grid that keeps the givens of the puzzle
+    static void assertSudoku(int[][] grid, int[][] solution, int size) {
+        int n = grid.length;
+        for (int i = 0; i < n; i++) {
+            Set<Integer> row = new HashSet<>(), column = new HashSet<>(), block = new HashSet<>();
+            for (int j = 0; j < n; j++) {
+                if (grid[i][j] != -1) assertEquals(grid[i][j], solution[i][j], "Given changed");
+                assertTrue(solution[i][j] >= 1 && solution[i][j] <= n, "Value out of range");
+                row.add(solution[i][j]);
+                column.add(solution[j][i]);
+                block.add(solution[i / size * size + j / size][i % size * size + j % size]);
+            }
+            assertEquals(n, row.size(), "Repeated value in a row");
+            assertEquals(n, column.size(), "Repeated value in a column");
+            assertEquals(n, block.size(), "Repeated value in a block");
+        }
+    }
+}
@@ -1,14 +1,16 @@
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class NQueensTest {
+    private static final int[] SOLUTIONS = {
+            0, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724, 2680, 14200
+    };
+
     @Test
     public void testNQueenSolutions() {
-        int[] solutions = {
-                0, 1, 0, 0, 2, 10, 4, 40, 92, 352, 724, 2680, 14200
-        };
-
         for (int n = 1; n <= 12; n++) {
             System.out.print("Running getNQueenSolutions (n = " + n + ")...");
 
@@ -16,9 +18,46 @@ class NQueensTest {
             int result = NQueens.getNQueenSolutions(n);
             long time = System.currentTimeMillis() - startMillis;
 
-            assertEquals(solutions[n], result, "Expected " + solutions[n] + " but got " + result + " (n = " + n + ")");
+            assertEquals(SOLUTIONS[n], result, "Expected " + SOLUTIONS[n] + " but got " + result + " (n = " + n + ")");
 
             System.out.println(" passed in " + time + "ms");
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSymmetricModels() {
+        //Both ways of keeping queens apart, on one thread and on several
+        for (int n = 1; n <= 9; n++) {
+            for (boolean bitmasks : new boolean[]{true, false}) {
+                for (int threads : new int[]{1, 4}) {
+                    Solver solver = NQueens.model(n, bitmasks);
+                    solver.setParallelism(threads);
+                    assertEquals(SOLUTIONS[n], solver.countSolutions(),
+                            "n = " + n + (bitmasks ? " with bitmasks" : " pairwise") + " on " + threads + " threads");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBoardSymmetriesMapSolutionsToSolutions() {
+        for (int n = 4; n <= 8; n++) {
+            Solver.Variable[] rows = new Solver.Variable[n];
+            for (int r = 0; r < n; r++) rows[r] = new Solver.Variable(Solver.Domain.range(0, n - 1));
+            Set<List<Integer>> all = new HashSet<>();
+            new Solver(rows, new Solver.Constraint[]{new Solver.Queens(rows)})
+                    .forEachSolution(solution -> all.add(Models.asList(solution)));
+            assertEquals(SOLUTIONS[n], all.size());
+
+            int[] image = new int[n];
+            for (Solver.Symmetry symmetry : NQueens.boardSymmetries(n)) {
+                Set<List<Integer>> images = new HashSet<>();
+                for (List<Integer> solution : all) {
+                    symmetry.map(solution.stream().mapToInt(Integer::intValue).toArray(), image);
+                    images.add(Models.asList(image));
+                }
+                assertEquals(all, images, "n = " + n);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTest {
+    private static final int VALUES = 80; //Wider than a word, so the domains move off the heap
+
+    @Test
+    public void testRandomModelsAgainstBruteForce() {
+        Random random = new Random(23);
+        for (int model = 0; model < 8; model++) {
+            int[] coefficients = {1 + random.nextInt(3), 1 + random.nextInt(3), 1 + random.nextInt(3)};
+            int min = 60 + random.nextInt(60), max = min + random.nextInt(3);
+            int offset = random.nextInt(10);
+
+            Set<List<Integer>> expected = new HashSet<>();
+            for (int a = 0; a < VALUES; a++) {
+                for (int b = 0; b < VALUES; b++) {
+                    for (int c = 0; c < VALUES; c++) {
+                        int sum = coefficients[0] * a + coefficients[1] * b + coefficients[2] * c;
+                        if (sum >= min && sum <= max && a < b + offset && a != b && b != c && a != c) {
+                            expected.add(List.of(a, b, c));
+                        }
+                    }
+                }
+            }
+
+            try (Solver.OffHeap arena = new Solver.OffHeap()) {
+                Solver solver = model(coefficients, min, max, offset, arena);
+                assertTrue(solver.variables[0].domain instanceof Solver.DirectDomain, "Domain left on the heap");
+                assertTrue(arena.allocated() > 0);
+                assertEquals(expected, Models.asSet(solver.findAllSolutions()), "Model " + model);
+
+                solver.reset();
+                solver.setParallelism(3);
+                assertEquals(expected.size(), solver.countSolutions(), "Parallel count of model " + model);
+            }
+        }
+    }
+
+    @Test
+    public void testCloseFreesEverything() {
+        Solver.OffHeap arena = new Solver.OffHeap();
+        Solver solver = model(new int[]{1, 2, 3}, 100, 101, 5, arena);
+        solver.countSolutions();
+        Solver.OffHeap.Region large = arena.allocate(Solver.OffHeap.CHUNK_LONGS);
+        arena.free(large);
+        arena.close();
+        //The runtime of the tests lets the arena free its buffers right away
+        assertEquals(0, arena.allocated());
+        assertThrows(IllegalStateException.class, large::longs);
+    }
+
+    @Test
+    public void testUseAfterClose() {
+        Solver.OffHeap arena = new Solver.OffHeap();
+        Solver solver = model(new int[]{1, 1, 1}, 30, 30, 0, arena);
+        long solutions = solver.countSolutions();
+        assertTrue(solutions > 0);
+        arena.close();
+        arena.close();
+
+        assertThrows(IllegalStateException.class, solver::countSolutions);
+        assertThrows(IllegalStateException.class, () -> solver.variables[0].domain.contains(1));
+        assertThrows(IllegalStateException.class, () -> arena.allocate(16));
+    }
+
+    //a * x + b * y + c * z in [min, max], x < y + offset and all different, each of them in [0, VALUES)
+    private static Solver model(int[] coefficients, int min, int max, int offset, Solver.OffHeap arena) {
+        Solver.Variable[] variables = new Solver.Variable[3];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = new Solver.Variable(Solver.Domain.range(0, VALUES - 1));
+        }
+        Solver.Constraint[] constraints = {
+                new Solver.Sum(variables, coefficients, min, max),
+                new Solver.LessThan(variables[0], variables[1], offset),
+                new Solver.AllDifferent(variables)
+        };
+        return new Solver(variables, constraints, arena);
+    }
+}
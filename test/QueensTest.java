@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueensTest {
+    @Test
+    public void testRestrictedBoardsAgainstBruteForce() {
+        Random random = new Random(12);
+        for (int model = 0; model < 60; model++) {
+            int n = 1 + random.nextInt(7);
+            //Some boards keep every column, so that every free column needs a queen of a row that is left
+            boolean full = random.nextInt(3) == 0;
+            List<List<Integer>> domains = new ArrayList<>();
+            for (int r = 0; r < n; r++) {
+                List<Integer> domain = new ArrayList<>();
+                for (int c = -1; c <= n; c++) {
+                    if (full ? c >= 0 && c < n : random.nextInt(4) != 0) domain.add(c);
+                }
+                if (domain.isEmpty()) domain.add(random.nextInt(n));
+                domains.add(domain);
+            }
+            Set<List<Integer>> expected = Models.bruteForce(domains, Models::isQueens);
+
+            assertEquals(expected.size(), model(domains, false).countSolutions(), "Count of " + domains);
+            assertEquals(expected, Models.asSet(model(domains, false).findAllSolutions()), "Solutions of " + domains);
+
+            //The same board next to a constraint that implies nothing new
+            assertEquals(expected.size(), model(domains, true).countSolutions(), "Search of " + domains);
+        }
+    }
+
+    @Test
+    public void testFirstSolutionsOnly() {
+        Solver solver = Models.queens(8);
+        int[] seen = new int[1];
+        solver.forEachSolution(solution -> ++seen[0] < 10);
+        assertEquals(10, seen[0]);
+        assertEquals(10, solver.solutionCount);
+    }
+
+    @Test
+    public void testFirstSolutionOfLargeBoards() {
+        //Found without going through the rest of the board, which would never end
+        for (int n = 20; n <= Solver.Queens.MAX_SIZE; n += 4) {
+            Solver solver = Models.queens(n);
+            int[] solution = assertTimeoutPreemptively(Duration.ofSeconds(10), solver::findOneSolution);
+            assertNotNull(solution, n + " rows");
+            assertTrue(Models.isQueens(solution), n + " rows");
+
+            Solver limited = Models.queens(n);
+            limited.setLimits(new Solver.Limits().solutions(3));
+            List<int[]> first = assertTimeoutPreemptively(Duration.ofSeconds(10), limited::findAllSolutions);
+            assertEquals(3, first.size(), n + " rows");
+            assertEquals(Solver.Outcome.LIMIT_REACHED, limited.getOutcome(), n + " rows");
+        }
+    }
+
+    //A lone Queens constraint, or one next to an AllDifferent that implies nothing new
+    private static Solver model(List<List<Integer>> domains, boolean searched) {
+        Solver.Variable[] rows = Models.variables(domains);
+        Solver.Constraint queens = new Solver.Queens(rows);
+        return new Solver(rows, searched
+                ? new Solver.Constraint[]{queens, new Solver.AllDifferent(rows)}
+                : new Solver.Constraint[]{queens});
+    }
+}
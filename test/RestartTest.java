@@ -0,0 +1,153 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestartTest {
+    @Test
+    public void testPolicies() {
+        long[] luby = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+        Solver.Luby policy = new Solver.Luby(3);
+        for (int run = 0; run < luby.length; run++) {
+            assertEquals(3 * luby[run], policy.failures(run), "Run " + run);
+        }
+
+        Solver.Geometric geometric = new Solver.Geometric(10, 1.5);
+        assertEquals(10, geometric.failures(0));
+        assertEquals(15, geometric.failures(1));
+        assertEquals(22, geometric.failures(2));
+        assertEquals(Long.MAX_VALUE, geometric.failures(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testRandomModelsAgainstBruteForce() {
+        List<Solver.RestartPolicy> policies = List.of(new Solver.Luby(1), new Solver.Luby(4),
+                new Solver.Geometric(1, 1.3));
+        Random random = new Random(16);
+        long restarts = 0;
+        for (int model = 0; model < 200; model++) {
+            int n = 4 + random.nextInt(3);
+            List<List<Integer>> domains = Models.domains(random, n, 0, 4);
+            int[][] pairs = new int[2 * n][];
+            for (int k = 0; k < pairs.length; k++) {
+                int x = random.nextInt(n), y = (x + 1 + random.nextInt(n - 1)) % n;
+                pairs[k] = new int[]{x, y, random.nextInt(3) - 1};
+            }
+            Set<List<Integer>> expected = Models.solutions(model(domains, pairs));
+
+            for (Solver.RestartPolicy policy : policies) {
+                Solver solver = model(domains, pairs);
+                solver.variableSelector = new Solver.RandomMinDomain(model);
+                solver.valueOrder = new Solver.RandomValues(model);
+                solver.restarts = policy;
+                int[] solution = solver.findOneSolution();
+                restarts += solver.getStatistics().restarts;
+                String description = policy.getClass().getSimpleName() + " on model " + model;
+                if (expected.isEmpty()) {
+                    assertNull(solution, description);
+                } else {
+                    assertNotNull(solution, description);
+                    assertTrue(expected.contains(Models.asList(solution)), description);
+                }
+
+                //The nogoods the runs left behind only cut off subtrees without solutions
+                Set<List<Integer>> all = new HashSet<>();
+                solver.forEachSolution(s -> all.add(Models.asList(s)));
+                assertEquals(expected, all, description);
+                assertEquals(expected.size(), solver.solutionCount, description);
+            }
+        }
+        assertTrue(restarts > 0, "No run was cut short");
+    }
+
+    @Test
+    public void testUnsatisfiableModelRestarts() {
+        //Seven pigeons in six holes
+        Solver solver = model(Collections.nCopies(7, List.of(0, 1, 2, 3, 4, 5)), pairwise(7));
+        solver.restarts = new Solver.Luby(1);
+        assertNull(solver.findOneSolution());
+        assertTrue(solver.getStatistics().restarts > 0);
+        assertNotNull(solver.nogoods);
+
+        solver.reset();
+        assertNull(solver.nogoods);
+        assertEquals(0, solver.countSolutions());
+    }
+
+    @Test
+    public void testPortfolioAgainstBruteForce() {
+        //One portfolio for every solver and search, with a strategy that picks both the variable and the value
+        Counted counted = new Counted();
+        Solver.Strategy[] portfolio = Solver.Strategy.portfolio(4);
+        portfolio[1] = new Solver.Strategy(counted, counted, new Solver.Luby(2));
+        Random random = new Random(5);
+        for (int model = 0; model < 40; model++) {
+            long seed = random.nextLong();
+            Set<List<Integer>> expected = Models.solutions(Models.notEqual(seed));
+
+            Solver solver = Models.notEqual(seed);
+            solver.setPortfolio(portfolio);
+            for (int search = 0; search < 2; search++) {
+                String description = "Search " + search + " of model " + model;
+                int[] solution = solver.findOneSolution();
+                if (expected.isEmpty()) {
+                    assertNull(solution, description);
+                } else {
+                    assertNotNull(solution, description);
+                    assertTrue(expected.contains(Models.asList(solution)), description);
+                }
+
+                //Every racer has added its work by the time the race returns
+                Solver.Statistics statistics = solver.getStatistics();
+                long nodes = statistics.nodes;
+                assertTrue(nodes > 0, description);
+                for (int check = 0; check < 3; check++) {
+                    Thread.yield();
+                    assertEquals(nodes, statistics.nodes, description);
+                }
+            }
+        }
+        //The racers searched with copies
+        assertEquals(0, counted.uses);
+    }
+
+    private static int[][] pairwise(int n) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int x = 0; x < n; x++) {
+            for (int y = x + 1; y < n; y++) {
+                pairs.add(new int[]{x, y, 0});
+            }
+        }
+        return pairs.toArray(new int[0][]);
+    }
+
+    //x != y + offset for each pair x, y, offset of variable indices
+    private static Solver model(List<List<Integer>> domains, int[][] pairs) {
+        Solver.Variable[] variables = Models.variables(domains);
+        Solver.Constraint[] constraints = new Solver.Constraint[pairs.length];
+        for (int k = 0; k < pairs.length; k++) {
+            constraints[k] = new Solver.NotEqual(variables[pairs[k][0]], variables[pairs[k][1]], pairs[k][2]);
+        }
+        return new Solver(variables, constraints);
+    }
+
+    //Picks the first unassigned variable and tries its values in ascending order, counting how often it was asked
+    private static class Counted extends Solver.Lexicographic implements Solver.ValueOrder {
+        int uses;
+
+        public int select(Solver solver) {
+            uses++;
+            return super.select(solver);
+        }
+
+        public int order(Solver.Variable v, int[] buffer) {
+            uses++;
+            return new Solver.AscendingValues().order(v, buffer);
+        }
+
+        public Counted copy() {
+            return new Counted();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTest {
+    @Test
+    public void testPausedSearchAgainstBruteForce() {
+        Random random = new Random(24);
+        for (int model = 0; model < 50; model++) {
+            long seed = random.nextLong();
+            Set<List<Integer>> expected = Models.solutions(model(seed));
+            Solver solver = model(seed);
+
+            Set<List<Integer>> found = new HashSet<>();
+            Solver.Search search = solver.start(solution -> {
+                assertTrue(found.add(Models.asList(solution)), "Reported twice");
+                return true;
+            });
+            while (!search.resume(1 + random.nextInt(5))) {
+                assertFalse(search.isDone());
+            }
+            assertTrue(search.isDone());
+            assertEquals(expected, found, "Model " + model);
+            assertEquals(expected.size(), solver.solutionCount, "Model " + model);
+
+            //Done, so the domains are back and the solver can search again
+            assertEquals(expected.size(), solver.countSolutions(), "Model " + model + " searched again");
+        }
+
+        //The first few of far too many solutions to list
+        try (Solver.SolutionIterator solutions = Models.queens(24).iterator()) {
+            for (int k = 0; k < 5; k++) assertTrue(Models.isQueens(solutions.next()));
+        }
+    }
+
+    @Test
+    public void testSplitNodesCoverTheRest() {
+        Random random = new Random(25);
+        for (int model = 0; model < 60; model++) {
+            long seed = random.nextLong();
+            Set<List<Integer>> expected = Models.solutions(model(seed));
+
+            //Every node split off goes to a solver of its own, and is split again while it is searched
+            Set<List<Integer>> found = new HashSet<>();
+            Deque<Solver.Node> nodes = new ArrayDeque<>();
+            nodes.add(new Solver.Node(new int[0], new int[0]));
+            while (!nodes.isEmpty()) {
+                Solver.Node node = nodes.poll();
+                try (Solver.Search search = model(seed).start(node, solution -> {
+                    assertTrue(found.add(Models.asList(solution)), "Reported twice under " + node);
+                    return true;
+                })) {
+                    while (!search.resume(1 + random.nextInt(4))) {
+                        if (random.nextBoolean()) nodes.addAll(search.split());
+                    }
+                    assertTrue(search.split().isEmpty());
+                }
+            }
+            assertEquals(expected, found, "Model " + model);
+        }
+    }
+
+    @Test
+    public void testSplitOnACopy() {
+        long seed = 26;
+        Set<List<Integer>> expected = Models.solutions(model(seed));
+        Solver solver = model(seed);
+        Set<List<Integer>> found = new HashSet<>();
+        Solver.SolutionListener listener = solution -> found.add(Models.asList(solution));
+
+        Solver.Search search = solver.start(listener);
+        search.resume(3);
+        List<Solver.Node> nodes = search.split();
+        assertFalse(nodes.isEmpty());
+        for (Solver.Node node : nodes) {
+            Solver copy = model(seed).copy();
+            Solver.Search rest = copy.start(node, listener);
+            assertTrue(rest.resume(Long.MAX_VALUE));
+        }
+        assertTrue(search.resume(Long.MAX_VALUE));
+        assertEquals(expected, found);
+    }
+
+    @Test
+    public void testOneSearchAtATime() {
+        Solver solver = model(27);
+        long count = model(27).countSolutions();
+        assertTrue(count > 1);
+
+        Solver.Search search = solver.start(null);
+        search.resume(2);
+        assertThrows(IllegalStateException.class, () -> solver.start(null));
+        search.close();
+        assertTrue(search.isDone());
+        assertTrue(search.resume(10));
+
+        //A listener that ends the search after the first solution
+        search = solver.start(solution -> false);
+        assertTrue(search.resume(Long.MAX_VALUE));
+        assertEquals(1, solver.solutionCount);
+
+        search = solver.start(null);
+        assertTrue(search.resume(Long.MAX_VALUE));
+        assertEquals(count, solver.solutionCount);
+    }
+
+    @Test
+    public void testIteratorAgainstBruteForce() {
+        Random random = new Random(28);
+        for (int model = 0; model < 30; model++) {
+            long seed = random.nextLong();
+            Set<List<Integer>> expected = Models.solutions(model(seed));
+            Solver solver = model(seed);
+
+            Set<List<Integer>> found = new HashSet<>();
+            Solver.SolutionIterator solutions = solver.iterator();
+            while (solutions.hasNext()) {
+                assertTrue(found.add(Models.asList(solutions.next())), "Reported twice");
+            }
+            assertThrows(NoSuchElementException.class, solutions::next);
+            assertEquals(expected, found, "Model " + model);
+
+            //Stopping early leaves the solver free for the next search
+            try (Solver.SolutionIterator first = solver.iterator()) {
+                if (first.hasNext()) assertTrue(expected.contains(Models.asList(first.next())), "Model " + model);
+            }
+            assertEquals(expected.size(), solver.countSolutions(), "Model " + model + " searched again");
+        }
+
+        //The first few of far too many solutions to list
+        try (Solver.SolutionIterator solutions = Models.queens(24).iterator()) {
+            for (int k = 0; k < 5; k++) assertTrue(Models.isQueens(solutions.next()));
+        }
+    }
+
+    //Variables with small domains, some of them with gaps, under x != y + offset constraints and an all different
+    private static Solver model(long seed) {
+        Random random = new Random(seed);
+        int n = 4 + random.nextInt(3);
+        Solver.Variable[] variables = Models.variables(Models.domains(random, n, 0, 5));
+        List<Solver.Constraint> constraints = new ArrayList<>();
+        for (int k = 0; k < n; k++) {
+            int x = random.nextInt(n), y = random.nextInt(n);
+            if (x != y) constraints.add(new Solver.NotEqual(variables[x], variables[y], random.nextInt(3) - 1));
+        }
+        constraints.add(new Solver.AllDifferent(Arrays.copyOf(variables, 3)));
+        return new Solver(variables, constraints.toArray(new Solver.Constraint[0]));
+    }
+}
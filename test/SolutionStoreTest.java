@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolutionStoreTest {
+    @Test
+    public void testRandomSolutionsRoundTrip() {
+        Random random = new Random(19);
+        for (int model = 0; model < 50; model++) {
+            //Single values, narrow and wide domains, some of them negative, so solutions straddle words
+            int n = 1 + random.nextInt(8);
+            Solver.Variable[] variables = new Solver.Variable[n];
+            List<List<Integer>> domains = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                List<Integer> domain = new ArrayList<>();
+                int lo = random.nextInt(2001) - 1000;
+                switch (random.nextInt(3)) {
+                    case 0:
+                        domain.add(lo);
+                        break;
+                    case 1:
+                        for (int v = lo; v < lo + 1 + random.nextInt(20); v++) domain.add(v);
+                        break;
+                    default:
+                        domain.add(lo);
+                        domain.add(lo + random.nextInt(1 << 22));
+                }
+                domains.add(domain);
+                variables[i] = new Solver.Variable(domain);
+            }
+
+            Solver.SolutionStore store = new Solver.SolutionStore(variables);
+            List<int[]> expected = new ArrayList<>();
+            for (int k = 0, count = random.nextInt(500); k < count; k++) {
+                int[] solution = new int[n];
+                for (int i = 0; i < n; i++) solution[i] = domains.get(i).get(random.nextInt(domains.get(i).size()));
+                expected.add(solution);
+                assertTrue(store.add(solution));
+            }
+            assertStored(expected, store, "Model " + model);
+
+            Comparator<int[]> order = Arrays::compare;
+            expected.sort(order);
+            store.sort(order);
+            assertStored(expected, store, "Sorted model " + model);
+
+            if (!expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.get(index)[n - 1], store.value(index, n - 1));
+                StringJoiner joiner = new StringJoiner(", ");
+                for (int value : expected.get(index)) joiner.add(String.valueOf(value));
+                assertEquals(joiner.toString(), store.toString(index, ", "));
+            }
+        }
+    }
+
+    @Test
+    public void testValuesOutsideTheDomains() {
+        Solver.Variable x = new Solver.Variable(Solver.Domain.range(3, 5));
+        Solver.Variable y = new Solver.Variable(List.of(7));
+        Solver.SolutionStore store = new Solver.SolutionStore(new Solver.Variable[]{x, y});
+        assertThrows(IllegalArgumentException.class, () -> store.add(new int[]{2, 7}));
+        //7 - 3 needs more than the two bits of x
+        assertThrows(IllegalArgumentException.class, () -> store.add(new int[]{7, 7}));
+        assertThrows(IllegalArgumentException.class, () -> store.add(new int[]{3, 8}));
+        store.add(new int[]{5, 7});
+        assertArrayEquals(new int[]{5, 7}, store.get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.toString(-1, ""));
+    }
+
+    @Test
+    public void testFoundSolutionsAgainstBruteForce() {
+        //x < y < z over a domain with a gap, and a fixed w
+        List<List<Integer>> domains = List.of(List.of(-3, -1, 0, 4, 9), List.of(-3, -1, 0, 4, 9),
+                List.of(-3, -1, 0, 4, 9), List.of(100));
+        Solver.Variable[] variables = new Solver.Variable[domains.size()];
+        for (int i = 0; i < variables.length; i++) variables[i] = new Solver.Variable(domains.get(i));
+        Solver solver = new Solver(variables, new Solver.Constraint[]{
+                new Solver.LessThan(variables[0], variables[1]), new Solver.LessThan(variables[1], variables[2])});
+
+        List<int[]> solutions = solver.findAllSolutions();
+        assertTrue(solutions instanceof Solver.SolutionStore);
+        assertEquals(Models.bruteForce(domains, s -> s[0] < s[1] && s[1] < s[2]),
+                Models.asSet(solutions));
+    }
+
+    private static void assertStored(List<int[]> expected, Solver.SolutionStore store, String message) {
+        assertEquals(expected.size(), store.size(), message);
+        int[] into = new int[expected.isEmpty() ? 0 : expected.get(0).length];
+        for (int k = 0; k < expected.size(); k++) {
+            assertArrayEquals(expected.get(k), store.get(k), message + ", solution " + k);
+            assertArrayEquals(expected.get(k), store.get(k, into), message + ", solution " + k);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsTest {
+    @Test
+    public void testProgressReports() {
+        for (int threads = 1; threads <= 3; threads++) {
+            AtomicLong calls = new AtomicLong();
+            Solver solver = queens(8, calls);
+            solver.setParallelism(threads);
+            List<Long> reports = Collections.synchronizedList(new ArrayList<>());
+            Set<Solver.Statistics> reporters = Collections.synchronizedSet(new HashSet<>());
+            solver.setProgressListener(statistics -> {
+                reports.add(statistics.nodes);
+                reporters.add(statistics);
+            }, 10);
+            assertEquals(92, solver.countSolutions());
+
+            Solver.Statistics total = solver.getStatistics();
+            assertEquals(92, total.solutions);
+            for (long nodes : reports) {
+                assertEquals(0, nodes % 10, "Reported at node " + nodes);
+            }
+            if (threads == 1) {
+                //Every tenth node of the one search
+                assertEquals(Set.of(total), reporters);
+                assertEquals(total.nodes / 10, reports.size());
+                for (int k = 0; k < reports.size(); k++) {
+                    assertEquals(10L * (k + 1), (long) reports.get(k));
+                }
+            } else {
+                //Every worker on its own part
+                assertFalse(reporters.contains(total));
+                assertTrue(reports.size() <= total.nodes / 10, reports.size() + " reports of " + total.nodes);
+            }
+
+            //Every call to infer of every copy of a constraint counts for that constraint
+            Solver.Constraint counted = solver.constraints[1];
+            assertEquals(calls.get(), total.propagations(counted), threads + " threads");
+            assertEquals(Arrays.stream(total.constraintPropagations).sum(), total.propagations);
+        }
+    }
+
+    @Test
+    public void testConstraintCounters() {
+        Solver.Variable x = new Solver.Variable(Solver.Domain.range(0, 20));
+        Solver.Variable y = new Solver.Variable(Solver.Domain.range(0, 20));
+        Solver.Constraint bounds = new Solver.BetweenFiveAndTenConstraint(x);
+        Solver.Constraint different = new Solver.NotEqual(x, y);
+        Solver solver = new Solver(new Solver.Variable[]{x, y}, new Solver.Constraint[]{bounds, different});
+        assertEquals(4 * 21 - 4, solver.countSolutions());
+
+        //The bounds only run at the root, the other constraint after every assignment as well
+        Solver.Statistics statistics = solver.getStatistics();
+        assertEquals(1, statistics.propagations(bounds));
+        assertTrue(statistics.propagations(different) > statistics.nodes / 2);
+        assertEquals(statistics.propagations, statistics.propagations(bounds) + statistics.propagations(different));
+
+        //A new search starts from zero
+        solver.countSolutions();
+        assertEquals(1, solver.getStatistics().propagations(bounds));
+    }
+
+    @Test
+    public void testBusyTime() throws InterruptedException {
+        for (int threads = 1; threads <= 3; threads++) {
+            Solver solver = queens(9, new AtomicLong());
+            solver.setParallelism(threads);
+            assertEquals(352, solver.countSolutions());
+            Solver.Statistics statistics = solver.getStatistics();
+            //Propagating is part of the busy time of the thread that does it, also in a parallel search
+            assertTrue(statistics.propagationNanos <= statistics.busyNanos(), statistics.toString());
+            assertEquals(statistics.busyNanos() - statistics.propagationNanos, statistics.branchingNanos());
+            if (threads == 1) assertEquals(statistics.wallNanos, statistics.busyNanos());
+        }
+
+        //A paused search is not busy
+        Solver solver = queens(9, new AtomicLong());
+        Solver.Search search = solver.start(null);
+        search.resume(50);
+        Thread.sleep(100);
+        assertTrue(search.resume(Long.MAX_VALUE));
+        Solver.Statistics statistics = solver.getStatistics();
+        assertTrue(statistics.busyNanos() <= statistics.wallNanos - 100_000_000L, statistics.toString());
+        assertTrue(statistics.propagationNanos <= statistics.busyNanos(), statistics.toString());
+    }
+
+    //N-Queens, with a constraint next to it that only counts how often it is called, over all of its copies
+    private static Solver queens(int n, AtomicLong calls) {
+        Solver.Variable[] rows = Models.variables(Collections.nCopies(n, Models.range(0, n - 1)));
+        return new Solver(rows, new Solver.Constraint[]{new Solver.Queens(rows), new Counted(rows, calls)});
+    }
+
+    private static class Counted extends Solver.Constraint {
+        final AtomicLong calls;
+
+        Counted(Solver.Variable[] scope, AtomicLong calls) {
+            super(scope);
+            this.calls = calls;
+        }
+
+        boolean infer() {
+            calls.incrementAndGet();
+            return true;
+        }
+
+        Solver.Constraint copy(Solver.Variable[] variables) {
+            Solver.Variable[] copies = new Solver.Variable[scope.length];
+            for (int i = 0; i < copies.length; i++) copies[i] = variables[scope[i].index];
+            return new Counted(copies, calls);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SudokuBatchTest {
+    private static final Path INSTANCES = Path.of("./src/sudoku_instances/");
+
+    @Test
+    public void testLoadMatchesScanner() throws IOException {
+        File[] files = INSTANCES.toFile().listFiles();
+        assertNotNull(files, "Couldn't find Sudoku files");
+        Arrays.sort(files);
+
+        List<SudokuBatch.Puzzle> puzzles = SudokuBatch.load(INSTANCES);
+        assertEquals(files.length, puzzles.size(), "Every file holds one puzzle");
+
+        for (int i = 0; i < files.length; i++) {
+            Scanner sc = new Scanner(files[i]);
+            SudokuBatch.Puzzle puzzle = puzzles.get(i);
+            assertEquals(sc.nextInt(), puzzle.size, files[i].getName() + ": size");
+            assertEquals(sc.nextInt(), puzzle.level, files[i].getName() + ": level");
+            for (int[] row : puzzle.grid) {
+                for (int cell : row) {
+                    assertEquals(sc.nextInt(), cell, files[i].getName() + ": cell");
+                }
+            }
+            sc.close();
+        }
+    }
+
+    @Test
+    public void testParseConcatenatedPuzzles() {
+        String corpus = "2\n7\n1\t-1\t-1\t-1\n-1 -1 3 -1\r\n-1 4 -1 -1\n-1 -1 -1 2\n\n2 3 "
+                + "-1 -1 -1 -1 -1 -1 -1 -1 -1 -1 -1 -1 -1 -1 -1 -1\n";
+        List<SudokuBatch.Puzzle> puzzles = new ArrayList<>();
+        SudokuBatch.parse(ByteBuffer.wrap(corpus.getBytes(StandardCharsets.US_ASCII)), puzzles);
+
+        assertEquals(2, puzzles.size());
+        assertEquals(7, puzzles.get(0).level);
+        assertArrayEquals(new int[]{-1, -1, 3, -1}, puzzles.get(0).grid[1]);
+        assertArrayEquals(new int[]{-1, -1, -1, 2}, puzzles.get(0).grid[3]);
+        assertEquals(3, puzzles.get(1).level);
+
+        assertThrows(IllegalArgumentException.class, () -> SudokuBatch.parse(
+                ByteBuffer.wrap("2 0 1 2 3".getBytes(StandardCharsets.US_ASCII)), new ArrayList<>()));
+        assertThrows(IllegalArgumentException.class, () -> SudokuBatch.parse(
+                ByteBuffer.wrap("2 x".getBytes(StandardCharsets.US_ASCII)), new ArrayList<>()));
+    }
+
+    @Test
+    public void testSolveAndWriteCorpus() throws IOException, InterruptedException {
+        //Every 9x9 instance, concatenated into a single file
+        Path corpus = Files.createTempFile("sudoku_corpus", ".txt");
+        Path output = Files.createTempFile("sudoku_solutions", ".txt");
+        try {
+            StringBuilder text = new StringBuilder();
+            for (SudokuBatch.Puzzle puzzle : SudokuBatch.load(INSTANCES)) {
+                if (puzzle.size != 3) continue;
+                text.append(puzzle.size).append('\n').append(puzzle.level).append('\n');
+                for (int[] row : puzzle.grid) {
+                    for (int cell : row) {
+                        text.append(cell).append('\t');
+                    }
+                    text.append('\n');
+                }
+            }
+            Files.writeString(corpus, text);
+
+            List<SudokuBatch.Puzzle> puzzles = SudokuBatch.load(corpus);
+            SudokuBatch.solveAll(puzzles, 3);
+            SudokuBatch.write(output, puzzles);
+            List<SudokuBatch.Puzzle> written = SudokuBatch.load(output);
+
+            assertEquals(puzzles.size(), written.size());
+            for (int i = 0; i < puzzles.size(); i++) {
+                SudokuBatch.Puzzle puzzle = puzzles.get(i);
+                assertNotNull(puzzle.solution, "Puzzle " + i + " was not solved");
+                Models.assertSudoku(puzzle.grid, puzzle.solution, puzzle.size);
+                assertEquals(puzzle.level, written.get(i).level, "Puzzle " + i + ": level");
+                for (int r = 0; r < puzzle.solution.length; r++) {
+                    assertArrayEquals(puzzle.solution[r], written.get(i).grid[r], "Puzzle " + i + ", row " + r);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(corpus);
+            Files.deleteIfExists(output);
+        }
+    }
+
+    @Test
+    public void testModelIsReusedAcrossPuzzles() throws IOException {
+        List<SudokuBatch.Puzzle> puzzles = SudokuBatch.load(INSTANCES);
+        Sudoku.Model model = new Sudoku.Model(9);
+
+        //Two 1s in the first row, which must not leak into the next puzzle
+        int[][] contradiction = new int[9][9];
+        for (int[] row : contradiction) {
+            Arrays.fill(row, -1);
+        }
+        contradiction[0][0] = contradiction[0][1] = 1;
+        assertNull(model.solve(contradiction), "Solved a grid with two 1s in a row");
+
+        for (SudokuBatch.Puzzle puzzle : puzzles) {
+            if (puzzle.size != 3) continue;
+            int[] result = model.solve(puzzle.grid);
+            assertNotNull(result, "Puzzle " + puzzle.level + " was not solved");
+            Models.assertSudoku(puzzle.grid, Sudoku.toGrid(result, 9), 3);
+        }
+    }
+
+    @Test
+    public void testRacingAcrossPuzzles() throws IOException {
+        //Races even on a single core, which solveRacing does not
+        Sudoku.Model model = new Sudoku.Model(9);
+        model.solver.setPortfolio(Solver.Strategy.portfolio(3));
+        for (SudokuBatch.Puzzle puzzle : SudokuBatch.load(INSTANCES)) {
+            if (puzzle.size != 3) continue;
+            int[] result = model.solve(puzzle.grid);
+            assertNotNull(result, "Puzzle " + puzzle.level + " was not solved");
+            Models.assertSudoku(puzzle.grid, Sudoku.toGrid(result, 9), 3);
+            Models.assertSudoku(puzzle.grid, Sudoku.solveRacing(puzzle.grid), 3);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SudokuCacheTest {
+    private static final Path INSTANCES = Path.of("./src/sudoku_instances/");
+
+    @Test
+    public void testRepeatedPuzzleHits() throws IOException {
+        SudokuCache cache = new SudokuCache(100);
+        for (SudokuBatch.Puzzle puzzle : SudokuBatch.load(INSTANCES)) {
+            if (puzzle.size != 3) continue;
+            int[][] first = cache.solve(puzzle.grid);
+            long hits = cache.hits();
+            int[][] second = cache.solve(puzzle.grid);
+            assertEquals(hits + 1, cache.hits(), "Puzzle " + puzzle.level + " was solved twice");
+            Models.assertSudoku(puzzle.grid, first, 3);
+            assertTrue(Arrays.deepEquals(first, second), "Puzzle " + puzzle.level + " changed its solution");
+        }
+    }
+
+    @Test
+    public void testTransformedPuzzleKeepsItsGivens() throws IOException {
+        Random random = new Random(1);
+        SudokuCache cache = new SudokuCache(1000);
+        int transformations = 0;
+        for (SudokuBatch.Puzzle puzzle : SudokuBatch.load(INSTANCES)) {
+            if (puzzle.size != 3) continue;
+            cache.solve(puzzle.grid);
+            for (int i = 0; i < 5; i++) {
+                int[][] transformed = transform(puzzle.grid, 3, random);
+                Models.assertSudoku(transformed, cache.solve(transformed), 3);
+                transformations++;
+            }
+        }
+        //Ties between the invariants may cost a miss, but most transformed puzzles should be recognised
+        assertTrue(cache.hits() > transformations * 3 / 4, cache.toString());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        List<int[][]> grids = new ArrayList<>();
+        for (SudokuBatch.Puzzle puzzle : SudokuBatch.load(INSTANCES)) {
+            if (puzzle.size == 3 && grids.size() < 3) grids.add(puzzle.grid);
+        }
+
+        SudokuCache cache = new SudokuCache(2);
+        cache.solve(grids.get(0));
+        cache.solve(grids.get(1));
+        cache.solve(grids.get(0));
+        cache.solve(grids.get(2)); //Evicts the second grid, which was used least recently
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+
+        cache.solve(grids.get(0));
+        assertEquals(2, cache.hits());
+        cache.solve(grids.get(1));
+        assertEquals(4, cache.misses());
+    }
+
+    @Test
+    public void testUnsolvableGridIsReturned() {
+        int[][] grid = new int[9][9];
+        for (int[] row : grid) {
+            Arrays.fill(row, -1);
+        }
+        grid[0][0] = grid[0][1] = 1;
+
+        SudokuCache cache = new SudokuCache(10);
+        assertSame(grid, cache.solve(grid));
+        assertSame(grid, cache.solve(grid));
+        assertEquals(1, cache.hits());
+    }
+
+    //Applies a random symmetry: swapping bands, stacks, rows within a band, columns within a stack, transposing and
+    //relabelling the digits
+    private static int[][] transform(int[][] grid, int size, Random random) {
+        int n = grid.length;
+        int[] rows = permutation(size, random), columns = permutation(size, random);
+        List<Integer> labels = new ArrayList<>();
+        for (int value = 1; value <= n; value++) {
+            labels.add(value);
+        }
+        Collections.shuffle(labels, random);
+        boolean transpose = random.nextBoolean();
+
+        int[][] transformed = new int[n][n];
+        for (int r = 0; r < n; r++) {
+            for (int c = 0; c < n; c++) {
+                int value = transpose ? grid[columns[c]][rows[r]] : grid[rows[r]][columns[c]];
+                transformed[r][c] = value == -1 ? -1 : labels.get(value - 1);
+            }
+        }
+        return transformed;
+    }
+
+    private static int[] permutation(int size, Random random) {
+        List<Integer> bands = new ArrayList<>();
+        for (int b = 0; b < size; b++) {
+            bands.add(b);
+        }
+        Collections.shuffle(bands, random);
+
+        int[] permutation = new int[size * size];
+        int next = 0;
+        for (int band : bands) {
+            List<Integer> lines = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                lines.add(band * size + i);
+            }
+            Collections.shuffle(lines, random);
+            for (int line : lines) {
+                permutation[next++] = line;
+            }
+        }
+        return permutation;
+    }
+}
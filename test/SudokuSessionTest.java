@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SudokuSessionTest {
+    private static final Path INSTANCES = Path.of("./src/sudoku_instances/");
+
+    @Test
+    public void testPlaceAndRetract() {
+        SudokuSession session = new SudokuSession(4);
+        assertArrayEquals(new int[]{1, 2, 3, 4}, session.candidates(0, 3));
+
+        assertTrue(session.place(0, 0, 1));
+        assertTrue(session.place(0, 1, 2));
+        assertTrue(session.place(1, 0, 3));
+        assertArrayEquals(new int[]{4}, session.candidates(1, 1), "Only value left for the block");
+        assertArrayEquals(new int[]{3, 4}, session.candidates(0, 2));
+        assertArrayEquals(new int[]{2, 4}, session.candidates(2, 0));
+        assertEquals(2, session.value(0, 1));
+
+        //Retracting an edit in the middle keeps the edits after it
+        session.retract(0, 1);
+        assertEquals(-1, session.value(0, 1));
+        assertEquals(3, session.value(1, 0));
+        assertArrayEquals(new int[]{2, 4}, session.candidates(0, 1));
+        assertArrayEquals(new int[]{2, 3, 4}, session.candidates(0, 2));
+        assertArrayEquals(new int[]{1, 2, 4}, session.candidates(1, 3));
+
+        session.retract(0, 0);
+        session.retract(1, 0);
+        assertArrayEquals(new int[]{1, 2, 3, 4}, session.candidates(0, 2));
+        assertTrue(session.isSolvable());
+    }
+
+    @Test
+    public void testContradictionIsRecoveredFrom() {
+        SudokuSession session = new SudokuSession(9);
+        assertTrue(session.place(0, 0, 5));
+        assertFalse(session.place(0, 8, 5), "Two 5s in a row");
+        assertFalse(session.place(4, 4, 1), "Edits after a contradiction keep it");
+        assertFalse(session.place(5, 5, 2));
+        assertFalse(session.isSolvable());
+        assertNull(session.solution());
+
+        session.retract(5, 5);
+        assertFalse(session.isConsistent());
+        session.retract(0, 8);
+        assertTrue(session.isConsistent());
+        assertEquals(1, session.value(4, 4), "The edit after the contradiction is applied once it is gone");
+        assertArrayEquals(new int[]{1}, session.candidates(4, 4));
+        assertFalse(Arrays.stream(session.candidates(4, 0)).anyMatch(v -> v == 1));
+
+        //Replacing a value retracts the old one first
+        assertTrue(session.place(0, 0, 2));
+        assertEquals(2, session.value(0, 0));
+        assertArrayEquals(new int[]{1, 3, 4, 5, 6, 7, 8, 9}, session.candidates(0, 8));
+        assertTrue(session.isSolvable());
+    }
+
+    @Test
+    public void testEditsMatchSolvingFromScratch() throws IOException {
+        Random random = new Random(4);
+        for (SudokuBatch.Puzzle puzzle : SudokuBatch.load(INSTANCES)) {
+            if (puzzle.size != 3) continue;
+            int n = puzzle.grid.length;
+            int[][] grid = new int[n][];
+            for (int r = 0; r < n; r++) {
+                grid[r] = puzzle.grid[r].clone();
+            }
+            SudokuSession session = new SudokuSession(grid);
+
+            for (int edit = 0; edit < 10; edit++) {
+                int r = random.nextInt(n), c = random.nextInt(n);
+                if (grid[r][c] != -1 && random.nextBoolean()) {
+                    session.retract(r, c);
+                    grid[r][c] = -1;
+                } else {
+                    grid[r][c] = 1 + random.nextInt(n);
+                    session.place(r, c, grid[r][c]);
+                }
+
+                SudokuSession fresh = new SudokuSession(grid);
+                assertEquals(fresh.isConsistent(), session.isConsistent());
+                if (!session.isConsistent()) continue;
+                for (int i = 0; i < n * n; i++) {
+                    assertArrayEquals(fresh.candidates(i / n, i % n), session.candidates(i / n, i % n));
+                }
+
+                int[][] solution = session.solution();
+                assertEquals(Sudoku.solve(grid) != grid, solution != null, "Solvability of puzzle " + puzzle.level);
+                if (solution == null) continue;
+                for (int i = 0; i < n * n; i++) {
+                    if (grid[i / n][i % n] != -1) assertEquals(grid[i / n][i % n], solution[i / n][i % n]);
+                }
+            }
+        }
+    }
+}
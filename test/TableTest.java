@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableTest {
+    @Test
+    public void testRandomModelsAgainstBruteForce() {
+        Random random = new Random(18);
+        for (int model = 0; model < 150; model++) {
+            int n = 3 + random.nextInt(3);
+            List<List<Integer>> domains = Models.domains(random, n, -1, 4);
+
+            //Tables over distinct variables, some with more tuples than a word and values outside the domains
+            int[][] scopes = new int[1 + random.nextInt(3)][];
+            int[][][] tables = new int[scopes.length][][];
+            for (int t = 0; t < scopes.length; t++) {
+                List<Integer> order = new ArrayList<>();
+                for (int i = 0; i < n; i++) order.add(i);
+                Collections.shuffle(order, random);
+                scopes[t] = new int[2 + random.nextInt(n - 1)];
+                for (int i = 0; i < scopes[t].length; i++) scopes[t][i] = order.get(i);
+                tables[t] = new int[random.nextInt(4) == 0 ? random.nextInt(3) : random.nextInt(150)][];
+                for (int k = 0; k < tables[t].length; k++) {
+                    tables[t][k] = new int[scopes[t].length];
+                    for (int i = 0; i < scopes[t].length; i++) tables[t][k][i] = random.nextInt(8) - 2;
+                }
+            }
+            boolean allDifferent = random.nextBoolean();
+            Predicate<int[]> check = s -> {
+                if (allDifferent && new HashSet<>(Models.asList(s)).size() < s.length) return false;
+                for (int t = 0; t < scopes.length; t++) {
+                    boolean allowed = false;
+                    for (int[] tuple : tables[t]) {
+                        boolean matches = true;
+                        for (int i = 0; i < tuple.length && matches; i++) matches = s[scopes[t][i]] == tuple[i];
+                        allowed |= matches;
+                    }
+                    if (!allowed) return false;
+                }
+                return true;
+            };
+            Set<List<Integer>> expected = Models.bruteForce(domains, check);
+            String description = "Model " + model + " with tables " + Arrays.deepToString(scopes);
+
+            Solver solver = model(domains, scopes, tables, allDifferent);
+            assertEquals(expected, Models.asSet(solver.findAllSolutions()), description);
+            assertEquals(expected.size(), solver.countSolutions(), description);
+
+            Solver parallel = model(domains, scopes, tables, allDifferent);
+            parallel.setParallelism(3);
+            assertEquals(expected.size(), parallel.countSolutions(), "Parallel " + description);
+
+            //Restricting before the search goes through the trail as well, and reset undoes it
+            Solver restricted = model(domains, scopes, tables, allDifferent);
+            int value = domains.get(0).get(random.nextInt(domains.get(0).size()));
+            restricted.variables[0].assign(value);
+            long count = expected.stream().filter(s -> s.get(0) == value).count();
+            assertEquals(count, restricted.countSolutions(), "x0 = " + value + " in " + description);
+            restricted.reset();
+            assertEquals(expected.size(), restricted.countSolutions(), "Reset " + description);
+        }
+    }
+
+    @Test
+    public void testTupleOutsideEveryDomain() {
+        Solver.Variable x = new Solver.Variable(Solver.Domain.range(0, 2));
+        Solver.Variable y = new Solver.Variable(Solver.Domain.range(0, 2));
+        Solver solver = new Solver(new Solver.Variable[]{x, y},
+                new Solver.Constraint[]{new Solver.Table(new Solver.Variable[]{x, y}, new int[][]{{5, 5}, {-1, 0}})});
+        assertNull(solver.findOneSolution());
+    }
+
+    //The tables, with or without an all different over every variable as well
+    private static Solver model(List<List<Integer>> domains, int[][] scopes, int[][][] tables, boolean allDifferent) {
+        Solver.Variable[] variables = Models.variables(domains);
+        List<Solver.Constraint> constraints = new ArrayList<>();
+        for (int t = 0; t < scopes.length; t++) {
+            Solver.Variable[] scope = new Solver.Variable[scopes[t].length];
+            for (int i = 0; i < scope.length; i++) scope[i] = variables[scopes[t][i]];
+            constraints.add(new Solver.Table(scope, tables[t]));
+        }
+        if (allDifferent) constraints.add(new Solver.AllDifferent(variables));
+        return new Solver(variables, constraints.toArray(new Solver.Constraint[0]));
+    }
+}